@@ -0,0 +1,67 @@
+package javagames.util;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VertexTransform.Backend.VECTOR, on the widest float vectors the CPU
+ * supports. Compiled and run with --add-modules jdk.incubator.vector and
+ * only ever loaded by name, so the rest of the code builds without it.
+ *
+ * Interleaved buffers are handled without deinterleaving: each vector
+ * holds whole x, y pairs, a copy with every pair swapped supplies the
+ * other coordinate, and the coefficients alternate between the x and y
+ * columns of the matrix. Leftover vertices go through a scalar loop.
+ */
+final class VectorTransformKernel implements TransformKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorShuffle<Float> SWAP_PAIRS = VectorShuffle.fromOp(SPECIES, i -> i ^ 1);
+    private static final VectorMask<Float> X_LANES = VectorMask.fromLong(SPECIES, 0x5555_5555_5555_5555L);
+
+    @Override
+    public void transform(float m00, float m01, float m10, float m11, float m20, float m21,
+            float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        // x' = x * m00 + y * m10 + m20 in x lanes, y' = y * m11 + x * m01 + m21
+        // in y lanes.
+        FloatVector same = FloatVector.broadcast(SPECIES, m11).blend(FloatVector.broadcast(SPECIES, m00), X_LANES);
+        FloatVector other = FloatVector.broadcast(SPECIES, m01).blend(FloatVector.broadcast(SPECIES, m10), X_LANES);
+        FloatVector offset = FloatVector.broadcast(SPECIES, m21).blend(FloatVector.broadcast(SPECIES, m20), X_LANES);
+        int floats = count * 2;
+        int blocked = SPECIES.loopBound(floats);
+        int i = 0;
+        for (; i < blocked; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, srcOffset + i);
+            v.mul(same)
+                    .add(v.rearrange(SWAP_PAIRS).mul(other))
+                    .add(offset)
+                    .intoArray(dst, dstOffset + i);
+        }
+        for (; i < floats; i += 2) {
+            float x = src[srcOffset + i];
+            float y = src[srcOffset + i + 1];
+            dst[dstOffset + i] = x * m00 + y * m10 + m20;
+            dst[dstOffset + i + 1] = x * m01 + y * m11 + m21;
+        }
+    }
+
+    @Override
+    public void transform(float m00, float m01, float m10, float m11, float m20, float m21,
+            float[] srcX, float[] srcY, float[] dstX, float[] dstY, int count) {
+        int blocked = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < blocked; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, srcX, i);
+            FloatVector y = FloatVector.fromArray(SPECIES, srcY, i);
+            x.mul(m00).add(y.mul(m10)).add(m20).intoArray(dstX, i);
+            x.mul(m01).add(y.mul(m11)).add(m21).intoArray(dstY, i);
+        }
+        for (; i < count; i++) {
+            float x = srcX[i];
+            float y = srcY[i];
+            dstX[i] = x * m00 + y * m10 + m20;
+            dstY[i] = x * m01 + y * m11 + m21;
+        }
+    }
+}
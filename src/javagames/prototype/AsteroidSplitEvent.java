@@ -0,0 +1,19 @@
+package javagames.prototype;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("javagames.AsteroidSplit")
+@Label("Asteroid Split")
+@Category({"Java Games", "Prototype Game"})
+class AsteroidSplitEvent extends jdk.jfr.Event {
+    @Label("Size")
+    String size;
+
+    @Label("Spawned")
+    int spawned;
+
+    @Label("Asteroids")
+    int asteroids;
+}
@@ -0,0 +1,255 @@
+package javagames.prototype;
+
+import javagames.util.BroadPhase;
+import javagames.util.Vector2f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the BroadPhase implementations on moving asteroid fields of 100
+ * to 100,000 asteroids. The world grows with the asteroid count so the
+ * density stays that of 100 asteroids in the game's 2 x 2 world. Every
+ * frame each implementation is rebuilt from the same positions and
+ * queried with one point per bullet plus the ship's circle, and the
+ * candidates go through the exact test, as in PrototypeGame. Reports the
+ * average time per frame and checks that all implementations find the
+ * same number of candidates. Brute force is skipped above 10,000
+ * asteroids.
+ *
+ * Before timing, every implementation is checked against
+ * BruteForceBroadPhase body for body, on fields where many bodies and
+ * queries straddle the world's edges and corners. The process exits with
+ * status 1 if any implementation disagrees.
+ *
+ * Run with: java javagames.prototype.BroadPhaseBenchmark [frames]
+ */
+public class BroadPhaseBenchmark {
+    private static final int[] ASTEROID_COUNTS = { 100, 1_000, 10_000, 100_000 };
+    private static final int BRUTE_FORCE_LIMIT = 10_000;
+    private static final int WARMUP_FRAMES = 50;
+    private static final float FRAME_SECONDS = 1.0f / 60.0f;
+    private static final int CHECK_ROUNDS = 20;
+    private static final int CHECK_QUERIES = 500;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        BroadPhase.Type[] types = BroadPhase.Type.values();
+        int failures = 0;
+        for (int n : new int[] { 10, 100, 1_000 }) {
+            failures += check(n, 2.0f, 2.0f, types);
+            failures += check(n, 3.0f, 1.5f, types);
+        }
+        if (failures > 0) {
+            System.out.println("FAILED: " + failures + " queries disagreed with brute force");
+            System.exit(1);
+        }
+        System.out.printf("%9s %7s %8s %12s %12s %12s%n",
+                "asteroids", "bullets", "type", "build us", "query us", "cand/frame");
+        int mismatches = 0;
+        for (int n : ASTEROID_COUNTS) {
+            mismatches += run(n, frames, types);
+        }
+        if (mismatches > 0) {
+            System.out.println("FAILED: implementations disagreed in " + mismatches + " frames");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares each implementation's result set with brute force, query by
+     * query, and returns the number of queries that differ. Half of the
+     * bodies and queries are placed on an edge or corner of the world, at
+     * most one radius inside, so their squares wrap to the other side.
+     */
+    private static int check(int bodyCount, float worldWidth, float worldHeight, BroadPhase.Type[] types) {
+        Random rand = new Random(bodyCount);
+        BroadPhase reference = BroadPhase.create(BroadPhase.Type.BRUTE, worldWidth, worldHeight);
+        BroadPhase[] phases = new BroadPhase[types.length];
+        for (int t = 0; t < types.length; t++) {
+            phases[t] = BroadPhase.create(types[t], worldWidth, worldHeight);
+        }
+        float maxRadius = Math.min(worldWidth, worldHeight) * 0.1f;
+        float[] xs = new float[bodyCount];
+        float[] ys = new float[bodyCount];
+        float[] radii = new float[bodyCount];
+        int[] expected = new int[bodyCount];
+        int[] actual = new int[bodyCount];
+        int failures = 0;
+
+        for (int round = 0; round < CHECK_ROUNDS; round++) {
+            for (int i = 0; i < bodyCount; i++) {
+                radii[i] = rand.nextFloat() * maxRadius;
+                xs[i] = checkCoordinate(rand, worldWidth, radii[i], i % 2 == 0);
+                ys[i] = checkCoordinate(rand, worldHeight, radii[i], i % 4 == 0);
+            }
+            reference.clear();
+            for (int i = 0; i < bodyCount; i++) {
+                reference.add(xs[i], ys[i], radii[i]);
+            }
+            reference.build();
+            for (BroadPhase phase : phases) {
+                phase.clear();
+                for (int i = 0; i < bodyCount; i++) {
+                    phase.add(xs[i], ys[i], radii[i]);
+                }
+                phase.build();
+            }
+
+            for (int q = 0; q < CHECK_QUERIES; q++) {
+                float radius = q % 3 == 0 ? 0.0f : rand.nextFloat() * maxRadius;
+                float x = checkCoordinate(rand, worldWidth, radius, q % 2 == 0);
+                float y = checkCoordinate(rand, worldHeight, radius, q % 4 == 1);
+                int expectedCount = results(reference, x, y, radius, expected);
+                for (BroadPhase phase : phases) {
+                    int count = results(phase, x, y, radius, actual);
+                    if (count != expectedCount || !Arrays.equals(expected, 0, count, actual, 0, count)) {
+                        if (failures++ < 10) {
+                            System.out.printf("%s: %d bodies in %.1f x %.1f, query (%f, %f) r %f found %d, expected %d%n",
+                                    name(phase.getType()), bodyCount, worldWidth, worldHeight,
+                                    x, y, radius, count, expectedCount);
+                        }
+                    }
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * A coordinate inside the world. On an edge, it lies within radius of
+     * one side, or exactly on it.
+     */
+    private static float checkCoordinate(Random rand, float size, float radius, boolean onEdge) {
+        float half = size * 0.5f;
+        if (!onEdge) {
+            return (rand.nextFloat() - 0.5f) * size;
+        }
+        float inset = rand.nextInt(8) == 0 ? 0.0f : rand.nextFloat() * radius;
+        return rand.nextBoolean() ? half - inset : inset - half;
+    }
+
+    /**
+     * Runs the query and stores its bodies, sorted, in dest.
+     */
+    private static int results(BroadPhase phase, float x, float y, float radius, int[] dest) {
+        int count = phase.query(x, y, radius);
+        for (int k = 0; k < count; k++) {
+            dest[k] = phase.getResult(k);
+        }
+        Arrays.sort(dest, 0, count);
+        return count;
+    }
+
+    private static int run(int asteroidCount, int frames, BroadPhase.Type[] types) {
+        Random rand = new Random(asteroidCount);
+        float worldSize = 2.0f * (float)Math.sqrt(asteroidCount / 100.0);
+        PolygonWrapper wrapper = new PolygonWrapper(worldSize, worldSize);
+        PrototypeAsteroidFactory factory = new PrototypeAsteroidFactory(wrapper);
+        PrototypeShip ship = new PrototypeShip(wrapper);
+
+        ArrayList<PrototypeAsteroid> asteroids = new ArrayList<>(asteroidCount);
+        for (int i = 0; i < asteroidCount; i++) {
+            Vector2f position = randomPosition(rand, worldSize);
+            switch (i % 3) {
+                case 0:
+                    asteroids.add(factory.createLargeAsteroid(position));
+                    break;
+                case 1:
+                    asteroids.add(factory.createMediumAsteroid(position));
+                    break;
+                default:
+                    asteroids.add(factory.createSmallAsteroid(position));
+                    break;
+            }
+        }
+        int bulletCount = Math.max(10, asteroidCount / 10);
+        Vector2f[] bullets = new Vector2f[bulletCount];
+        for (int i = 0; i < bulletCount; i++) {
+            bullets[i] = randomPosition(rand, worldSize);
+        }
+
+        BroadPhase[] phases = new BroadPhase[types.length];
+        for (int t = 0; t < types.length; t++) {
+            if (types[t] != BroadPhase.Type.BRUTE || asteroidCount <= BRUTE_FORCE_LIMIT) {
+                phases[t] = BroadPhase.create(types[t], worldSize, worldSize);
+            }
+        }
+        long[] buildNanos = new long[types.length];
+        long[] queryNanos = new long[types.length];
+        long[] candidates = new long[types.length];
+        int mismatches = 0;
+
+        for (int frame = 0; frame < WARMUP_FRAMES + frames; frame++) {
+            boolean measured = frame >= WARMUP_FRAMES;
+            for (PrototypeAsteroid asteroid : asteroids) {
+                asteroid.update(FRAME_SECONDS);
+            }
+            int expectedCandidates = -1;
+            int expectedHits = -1;
+            for (int t = 0; t < types.length; t++) {
+                BroadPhase phase = phases[t];
+                if (phase == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                phase.clear();
+                for (PrototypeAsteroid asteroid : asteroids) {
+                    Vector2f p = asteroid.getPosition();
+                    phase.add(p.x, p.y, asteroid.getRadius());
+                }
+                phase.build();
+                long built = System.nanoTime();
+                int frameCandidates = 0;
+                int frameHits = 0;
+                for (Vector2f bullet : bullets) {
+                    int found = phase.query(bullet.x, bullet.y, 0.0f);
+                    frameCandidates += found;
+                    for (int k = 0; k < found; k++) {
+                        if (asteroids.get(phase.getResult(k)).contains(bullet)) {
+                            frameHits++;
+                        }
+                    }
+                }
+                Vector2f s = ship.getPosition();
+                frameCandidates += phase.query(s.x, s.y, ship.getRadius());
+                long end = System.nanoTime();
+
+                if (expectedCandidates < 0) {
+                    expectedCandidates = frameCandidates;
+                    expectedHits = frameHits;
+                } else if (frameCandidates != expectedCandidates || frameHits != expectedHits) {
+                    mismatches++;
+                }
+                if (measured) {
+                    buildNanos[t] += built - start;
+                    queryNanos[t] += end - built;
+                    candidates[t] += frameCandidates;
+                }
+            }
+        }
+
+        for (int t = 0; t < types.length; t++) {
+            if (phases[t] == null) {
+                System.out.printf("%9d %7d %8s %12s %12s %12s%n",
+                        asteroidCount, bulletCount, name(types[t]), "-", "-", "-");
+                continue;
+            }
+            System.out.printf("%9d %7d %8s %12.1f %12.1f %12.1f%n",
+                    asteroidCount, bulletCount, name(types[t]),
+                    buildNanos[t] / 1.0E3 / frames,
+                    queryNanos[t] / 1.0E3 / frames,
+                    (double)candidates[t] / frames);
+        }
+        return mismatches;
+    }
+
+    private static Vector2f randomPosition(Random rand, float worldSize) {
+        return new Vector2f((rand.nextFloat() - 0.5f) * worldSize, (rand.nextFloat() - 0.5f) * worldSize);
+    }
+
+    private static String name(BroadPhase.Type type) {
+        return type.name().toLowerCase();
+    }
+}
@@ -0,0 +1,13 @@
+package javagames.prototype;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("javagames.BulletSpawn")
+@Label("Bullet Spawn")
+@Category({"Java Games", "Prototype Game"})
+class BulletSpawnEvent extends jdk.jfr.Event {
+    @Label("Bullets")
+    int bullets;
+}
@@ -0,0 +1,27 @@
+package javagames.prototype;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("javagames.CollisionPass")
+@Label("Collision Pass")
+@Category({"Java Games", "Prototype Game"})
+class CollisionPassEvent extends jdk.jfr.Event {
+    @Label("Pass")
+    String pass;
+
+    @Label("Bullets")
+    int bullets;
+
+    @Label("Asteroids")
+    int asteroids;
+
+    @Label("Candidates")
+    @Description("Pairs the broad phase passed on to the exact test.")
+    int candidates;
+
+    @Label("Hits")
+    int hits;
+}
@@ -0,0 +1,76 @@
+package javagames.prototype;
+
+import javagames.util.Motion;
+
+import java.util.ArrayList;
+
+/**
+ * Replays a scripted flight of the prototype ship, turning, thrusting and
+ * firing in a fixed pattern at 60 ticks per second, and folds the ship and
+ * bullet checksums of every tick into one value. The replay runs once cold,
+ * while the code is still interpreted, and again after the JIT has
+ * compiled it. Both runs must agree, and the printed value can be compared
+ * between machines. With -Djavagames.motion=fixed it has to be identical
+ * everywhere; with float motion it is not guaranteed to be. The process
+ * exits with status 1 if the runs disagree.
+ *
+ * The ship spins much faster than in play for part of the script, so the
+ * heading goes round many thousands of times.
+ *
+ * Run with: java -Djavagames.motion=fixed javagames.prototype.DeterminismCheck [ticks]
+ */
+public class DeterminismCheck {
+    private static final float TICK_SECONDS = 1.0f / 60.0f;
+    private static final int WARMUP_RUNS = 5;
+    private static final float SPIN_TICK_SECONDS = 10.0f;
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 36_000;
+        String motion = System.getProperty(Motion.TYPE_PROPERTY, "float");
+        int cold = replay(ticks);
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            replay(ticks);
+        }
+        int warm = replay(ticks);
+        System.out.printf("motion=%s ticks=%d checksum=%08x%n", motion, ticks, warm);
+        if (cold != warm) {
+            System.out.printf("FAILED: cold run gave %08x%n", cold);
+            System.exit(1);
+        }
+    }
+
+    private static int replay(int ticks) {
+        PolygonWrapper wrapper = new PolygonWrapper(2.0f, 2.0f);
+        PrototypeShip ship = new PrototypeShip(wrapper);
+        ArrayList<PrototypeBullet> bullets = new ArrayList<>();
+        int hash = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            // Inputs change every quarter second, cycling through a script
+            // of turns, thrust and fire.
+            int step = tick / 15;
+            float delta = tick % 600 < 60 ? SPIN_TICK_SECONDS : TICK_SECONDS;
+            if (step % 5 == 1) {
+                ship.rotateLeft(delta);
+            } else if (step % 7 == 3) {
+                ship.rotateRight(delta);
+            }
+            ship.setThrusting(step % 3 != 0);
+            if (tick % 20 == 0) {
+                bullets.add(ship.launchBullet());
+            }
+
+            ship.update(TICK_SECONDS);
+            hash = 31 * hash + ship.checksum();
+            for (int i = bullets.size() - 1; i >= 0; i--) {
+                PrototypeBullet bullet = bullets.get(i);
+                bullet.update(TICK_SECONDS);
+                if (wrapper.hasLeftWorld(bullet.getPosition())) {
+                    bullets.remove(i);
+                } else {
+                    hash = 31 * hash + bullet.checksum();
+                }
+            }
+        }
+        return hash;
+    }
+}
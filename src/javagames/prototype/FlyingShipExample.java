@@ -17,7 +17,7 @@ public class FlyingShipExample extends SimpleFramework {
         appWidth = 640;
         appHeight = 640;
         appMaintainRatio = true;
-        appSleep = 1L;
+        appTargetFps = 60.0f;
         appTitle = "Flying ship example";
     }
 
@@ -1,11 +1,11 @@
 package javagames.prototype;
 
-import javagames.util.Matrix3x3f;
+import javagames.util.Motion;
 import javagames.util.Vector2f;
 
-import java.util.List;
-
 public class PolygonWrapper {
+    public static final int MAX_COPIES = 9;
+
     private float worldWidth;
     private float worldHeight;
     private Vector2f worldMin;
@@ -23,94 +23,82 @@ public class PolygonWrapper {
     }
 
     public Vector2f wrapPosition(Vector2f position) {
-        Vector2f wrapped = new Vector2f(position);
-        if (position.x < worldMin.x) {
-            wrapped.x = position.x + worldWidth;
-        } else if (position.x > worldMax.x) {
-            wrapped.x = position.x - worldWidth;
-        }
-        if (position.y < worldMin.y) {
-            wrapped.y = position.y + worldHeight;
-        } else if (position.y > worldMax.y) {
-            wrapped.y = position.y - worldHeight;
-        }
-        return wrapped;
+        return wrapPosition(position, new Vector2f(position));
     }
 
-    public void wrapPolygon(Vector2f[] poly, List<Vector2f[]> renderList) {
-        Vector2f min = getMin(poly);
-        Vector2f max = getMax(poly);
-
-        boolean north = max.y > worldMax.y;
-        boolean south = min.y < worldMin.y;
-        boolean west = min.x < worldMin.x;
-        boolean east = max.x > worldMax.x;
-
-        if (west) renderList.add(wrapEast(poly));
-        if (east) renderList.add(wrapWest(poly));
-        if (north) renderList.add(wrapSouth(poly));
-        if (south) renderList.add(wrapNorth(poly));
-        if (north && west) renderList.add(wrapSouthEast(poly));
-        if (north && east) renderList.add(wrapSouthWest(poly));
-        if (south && west) renderList.add(wrapNorthEast(poly));
-        if (south && east) renderList.add(wrapNorthWest(poly));
+    public void wrapPosition(Motion motion) {
+        motion.wrap(worldWidth, worldHeight);
     }
 
-    private Vector2f getMin(Vector2f[] poly) {
-        Vector2f min = new Vector2f(Float.MAX_VALUE,Float.MAX_VALUE);
-        for (Vector2f v : poly) {
-            min.x = Math.min(v.x, min.x);
-            min.y = Math.min(v.y, min.y);
+    /**
+     * Wraps position into dest, which may be position itself. Returns dest.
+     */
+    public Vector2f wrapPosition(Vector2f position, Vector2f dest) {
+        float x = position.x;
+        float y = position.y;
+        if (x < worldMin.x) {
+            x += worldWidth;
+        } else if (x > worldMax.x) {
+            x -= worldWidth;
         }
-        return min;
-    }
-
-    private Vector2f getMax(Vector2f[] poly) {
-        Vector2f max = new Vector2f(-Float.MAX_VALUE, -Float.MAX_VALUE);
-        for (Vector2f v : poly) {
-            max.x = Math.max(v.x, max.x);
-            max.y = Math.max(v.y, max.y);
+        if (y < worldMin.y) {
+            y += worldHeight;
+        } else if (y > worldMax.y) {
+            y -= worldHeight;
         }
-        return max;
-    }
-
-    private Vector2f[] wrapNorth(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(0.0f, worldHeight));
+        return dest.set(x, y);
     }
 
-    private Vector2f[] wrapSouth(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(0.0f, -worldHeight));
+    /**
+     * Writes the translations, as dx, dy pairs, at which an object at (x, y)
+     * with the given bounding radius has to be drawn and tested so that it
+     * shows up on the far side of every edge it overlaps. The first offset is
+     * always (0, 0). Returns the number of offsets, at most MAX_COPIES.
+     */
+    public int getWrapOffsets(float x, float y, float radius, float[] offsets) {
+        boolean north = y + radius > worldMax.y;
+        boolean south = y - radius < worldMin.y;
+        boolean west = x - radius < worldMin.x;
+        boolean east = x + radius > worldMax.x;
+
+        int count = 0;
+        count = addOffset(offsets, count, 0.0f, 0.0f);
+        if (west) count = addOffset(offsets, count, worldWidth, 0.0f);
+        if (east) count = addOffset(offsets, count, -worldWidth, 0.0f);
+        if (north) count = addOffset(offsets, count, 0.0f, -worldHeight);
+        if (south) count = addOffset(offsets, count, 0.0f, worldHeight);
+        if (north && west) count = addOffset(offsets, count, worldWidth, -worldHeight);
+        if (north && east) count = addOffset(offsets, count, -worldWidth, -worldHeight);
+        if (south && west) count = addOffset(offsets, count, worldWidth, worldHeight);
+        if (south && east) count = addOffset(offsets, count, -worldWidth, worldHeight);
+        return count;
     }
 
-    private Vector2f[] wrapEast(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(worldWidth, 0.0f));
+    private int addOffset(float[] offsets, int count, float dx, float dy) {
+        offsets[count * 2] = dx;
+        offsets[count * 2 + 1] = dy;
+        return count + 1;
     }
 
-    private Vector2f[] wrapWest(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(-worldWidth, 0.0f));
-    }
-
-    private Vector2f[] wrapNorthWest(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(-worldWidth, worldHeight));
-    }
-
-    private Vector2f[] wrapNorthEast(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(worldWidth, worldHeight));
-    }
-
-    private Vector2f[] wrapSouthEast(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(worldWidth, -worldHeight));
-    }
-
-    private Vector2f[] wrapSouthWest(Vector2f[] poly) {
-        return transform(poly, Matrix3x3f.translate(-worldWidth, -worldHeight));
+    /**
+     * Returns the shortest signed distance equivalent to dx on the wrapped
+     * world, i.e. dx moved into [-worldWidth / 2, worldWidth / 2].
+     */
+    public float shortestDeltaX(float dx) {
+        if (dx > worldMax.x) {
+            return dx - worldWidth;
+        } else if (dx < worldMin.x) {
+            return dx + worldWidth;
+        }
+        return dx;
     }
 
-    private Vector2f[] transform(Vector2f poly[], Matrix3x3f mat) {
-        Vector2f[] copy = new Vector2f[poly.length];
-        for (int i = 0; i < poly.length; i++) {
-            copy[i] = mat.mul(poly[i]);
+    public float shortestDeltaY(float dy) {
+        if (dy > worldMax.y) {
+            return dy - worldHeight;
+        } else if (dy < worldMin.y) {
+            return dy + worldHeight;
         }
-        return copy;
+        return dy;
     }
 }
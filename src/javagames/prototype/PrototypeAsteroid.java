@@ -1,14 +1,17 @@
 package javagames.prototype;
 
 import javagames.util.Matrix3x3f;
+import javagames.util.Motion;
+import javagames.util.Shape2f;
+import javagames.util.SinCos;
+import javagames.util.Updatable;
 import javagames.util.Utility;
 import javagames.util.Vector2f;
 
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.Random;
 
-public class PrototypeAsteroid {
+public class PrototypeAsteroid implements Updatable {
     public enum Size {
         Large,
         Medium,
@@ -21,22 +24,74 @@ public class PrototypeAsteroid {
     private float rotation;
     private float rotationDelta;
 
-    private Vector2f[] polygon;
-    private Vector2f position;
-    private Vector2f velocity;
-    private ArrayList<Vector2f[]> renderList;
+    private Shape2f shape;
+    // Bounding circle of the shape at any rotation, taken from the
+    // template once, so bounds only move with the position.
+    private float radius;
+    private float radiusSqr;
+    // Bounding box of the template as center and half extents, also
+    // taken once. The world box is this box rotated and moved with the
+    // position.
+    private float localBoundsX;
+    private float localBoundsY;
+    private float localHalfWidth;
+    private float localHalfHeight;
+    private float boundsX;
+    private float boundsY;
+    private float boundsHalfWidth;
+    private float boundsHalfHeight;
+    private final Motion motion;
+    private final Vector2f position = new Vector2f();
+    private final SinCos sinCos = new SinCos();
+    private final RenderState renderState = new RenderState();
+
+    /**
+     * Everything draw needs, kept apart from the simulation state so a
+     * copy can be drawn while the asteroid keeps moving.
+     */
+    public static class RenderState {
+        private Shape2f shape;
+        private float x;
+        private float y;
+        private float cos = 1.0f;
+        private float sin;
+        private final float[] offsets = new float[PolygonWrapper.MAX_COPIES * 2];
+        private int copyCount;
+        private final Matrix3x3f modelView = new Matrix3x3f();
+
+        public void set(RenderState other) {
+            shape = other.shape;
+            x = other.x;
+            y = other.y;
+            cos = other.cos;
+            sin = other.sin;
+            copyCount = other.copyCount;
+            System.arraycopy(other.offsets, 0, offsets, 0, copyCount * 2);
+        }
+
+        public void draw(Graphics2D g, Matrix3x3f view) {
+            for (int i = 0; i < copyCount; i++) {
+                modelView.setTRS(cos, sin, x + offsets[i * 2], y + offsets[i * 2 + 1], 1.0f, 1.0f);
+                modelView.mulInto(view, modelView);
+                g.setColor(Color.LIGHT_GRAY);
+                Utility.fillPolygon(g, shape, modelView);
+                g.setColor(Color.BLACK);
+                Utility.drawPolygon(g, shape, modelView);
+            }
+        }
+    }
 
     public PrototypeAsteroid(PolygonWrapper wrapper) {
         this.wrapper = wrapper;
-        renderList = new ArrayList<>();
-        velocity = getRandomVelocity();
+        motion = Motion.create();
+        setRandomVelocity();
         rotationDelta = getRandomRotationDelta();
     }
 
-    private Vector2f getRandomVelocity() {
+    private void setRandomVelocity() {
         float angle = getRandomRadians(0, 360);
         float radius = getRandomFloat(0.06f, 0.3f);
-        return Vector2f.polar(angle, radius);
+        motion.setVelocityPolar(angle, radius);
     }
 
     private float getRandomRadians(int minDegree, int maxDegree) {
@@ -54,12 +109,54 @@ public class PrototypeAsteroid {
         return new Random().nextBoolean() ? radians : -radians;
     }
 
-    public void setPolygon(Vector2f[] polygon) {
-        this.polygon = polygon;
+    public void setShape(Shape2f shape) {
+        this.shape = shape;
+        radius = shape.getRadius();
+        radiusSqr = radius * radius;
+        localBoundsX = (shape.getMinX() + shape.getMaxX()) * 0.5f;
+        localBoundsY = (shape.getMinY() + shape.getMaxY()) * 0.5f;
+        localHalfWidth = (shape.getMaxX() - shape.getMinX()) * 0.5f;
+        localHalfHeight = (shape.getMaxY() - shape.getMinY()) * 0.5f;
+        updateBounds();
+        updateRenderState();
+    }
+
+    public Shape2f getShape() {
+        return shape;
+    }
+
+    /**
+     * Radius of the bounding circle around the position, at any rotation.
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * Center of the world-space bounding box. The box is not wrapped, so
+     * compare it through the wrapper's shortest deltas.
+     */
+    public float getBoundsX() {
+        return boundsX;
+    }
+
+    public float getBoundsY() {
+        return boundsY;
+    }
+
+    public float getBoundsHalfWidth() {
+        return boundsHalfWidth;
+    }
+
+    public float getBoundsHalfHeight() {
+        return boundsHalfHeight;
     }
 
     public void setPosition(Vector2f position) {
-        this.position = position;
+        motion.setPosition(position.x, position.y);
+        motion.getPosition(this.position);
+        updateBounds();
+        updateRenderState();
     }
 
     public Vector2f getPosition() {
@@ -74,70 +171,82 @@ public class PrototypeAsteroid {
         return size;
     }
 
+    @Override
     public void update(float time) {
-        position = position.add(velocity.mul(time));
-        position = wrapper.wrapPosition(position);
+        motion.integrate(time);
+        wrapper.wrapPosition(motion);
+        motion.getPosition(position);
 
         rotationDelta += rotationDelta * time;
 
-        renderList.clear();
-        Vector2f[] world = transformPolygon();
-        renderList.add(world);
-        wrapper.wrapPolygon(world, renderList);
+        sinCos.set(rotation);
+        updateBounds();
+        updateRenderState();
+    }
+
+    /**
+     * Rotates the template's box and moves it to the position. The result
+     * holds the rotated box, so it also holds the shape.
+     */
+    private void updateBounds() {
+        float cos = sinCos.cos();
+        float sin = sinCos.sin();
+        float absCos = Math.abs(cos);
+        float absSin = Math.abs(sin);
+        boundsX = position.x + localBoundsX * cos - localBoundsY * sin;
+        boundsY = position.y + localBoundsX * sin + localBoundsY * cos;
+        boundsHalfWidth = localHalfWidth * absCos + localHalfHeight * absSin;
+        boundsHalfHeight = localHalfWidth * absSin + localHalfHeight * absCos;
+    }
+
+    /**
+     * Also called when the asteroid is placed, so it can be drawn before
+     * its first update, which the scheduler may hold back a few frames.
+     */
+    private void updateRenderState() {
+        if (shape == null) {
+            return;
+        }
+        RenderState state = renderState;
+        state.shape = shape;
+        state.x = position.x;
+        state.y = position.y;
+        state.cos = sinCos.cos();
+        state.sin = sinCos.sin();
+        state.copyCount = wrapper.getWrapOffsets(position.x, position.y, shape.getRadius(), state.offsets);
     }
 
-    private Vector2f[] transformPolygon() {
-        Matrix3x3f mat = Matrix3x3f.rotate(rotation);
-        mat = mat.mul(Matrix3x3f.translate(position));
-        return transform(polygon, mat);
-    }
-
-    private Vector2f[] transform(Vector2f[] poly, Matrix3x3f mat) {
-        Vector2f[] copy = new Vector2f[poly.length];
-        for (int i = 0; i < poly.length; i++) {
-            copy[i] = mat.mul(poly[i]);
-        }
-        return copy;
+    public void copyRenderState(RenderState dest) {
+        dest.set(renderState);
     }
 
     public void draw(Graphics2D g, Matrix3x3f view) {
-        for (Vector2f[] poly : renderList) {
-            for (int i = 0; i < poly.length; i++) {
-                poly[i] = view.mul(poly[i]);
-            }
-            g.setColor(Color.LIGHT_GRAY);
-            Utility.fillPolygon(g, poly);
-            g.setColor(Color.BLACK);
-            Utility.drawPolygon(g, poly);
-        }
+        renderState.draw(g, view);
     }
 
     public boolean contains(Vector2f point) {
-        for (Vector2f[] polygon : renderList) {
-            if (pointInPolygon(point, polygon)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean pointInPolygon(Vector2f point, Vector2f[] polygon) {
-        boolean inside = false;
-        Vector2f start = polygon[polygon.length - 1];
-        boolean startAbove = start.y >= point.y;
-        for (int i = 0; i < polygon.length; i++) {
-            Vector2f end = polygon[i];
-            boolean endAbove = end.y >= point.y;
-            if (startAbove != endAbove) {
-                float m = (end.y - start.y) / (end.x - start.x);
-                float x = start.x + (point.y - start.y) / m;
-                if (x >= point.x) {
-                    inside = !inside;
-                }
-            }
-            startAbove = endAbove;
-            start = end;
+        return contains(point.x, point.y);
+    }
+
+    /**
+     * Tests a world-space point against the asteroid by moving the point
+     * into the asteroid's local frame and testing the untransformed shape.
+     * The offset to the point is first wrapped to its shortest toroidal
+     * form, which covers every wrapped copy of the asteroid at once. Points
+     * outside the bounding circle are rejected before any rotation or
+     * per-edge work.
+     */
+    public boolean contains(float x, float y) {
+        float dx = wrapper.shortestDeltaX(x - position.x);
+        float dy = wrapper.shortestDeltaY(y - position.y);
+        if (dx * dx + dy * dy > radiusSqr) {
+            return false;
         }
-        return inside;
+        // Inverse of the rotation applied in setTRS.
+        float cos = sinCos.cos();
+        float sin = sinCos.sin();
+        float localX = dx * cos + dy * sin;
+        float localY = dy * cos - dx * sin;
+        return shape.contains(localX, localY);
     }
 }
@@ -1,6 +1,6 @@
 package javagames.prototype;
 
-import javagames.util.Matrix3x3f;
+import javagames.util.Shape2f;
 import javagames.util.Vector2f;
 
 import java.util.Random;
@@ -109,6 +109,12 @@ public class PrototypeAsteroidFactory {
             }
     };
 
+    // Every template in all four mirror variants, indexed by
+    // [template][(mirrorX ? 1 : 0) | (mirrorY ? 2 : 0)].
+    private static final Shape2f[][] LARGE_SHAPES = createShapes(LARGE);
+    private static final Shape2f[][] MEDIUM_SHAPES = createShapes(MEDIUM);
+    private static final Shape2f[][] SMALL_SHAPES = createShapes(SMALL);
+
     private PolygonWrapper wrapper;
     private Random rand;
 
@@ -120,7 +126,7 @@ public class PrototypeAsteroidFactory {
     public PrototypeAsteroid createLargeAsteroid(Vector2f position) {
         PrototypeAsteroid asteroid = new PrototypeAsteroid(wrapper);
         asteroid.setPosition(position);
-        asteroid.setPolygon(getRandomAsteroid(LARGE));
+        asteroid.setShape(getRandomAsteroid(LARGE_SHAPES));
         asteroid.setSize(PrototypeAsteroid.Size.Large);
         return asteroid;
     }
@@ -128,7 +134,7 @@ public class PrototypeAsteroidFactory {
     public PrototypeAsteroid createMediumAsteroid(Vector2f position) {
         PrototypeAsteroid asteroid = new PrototypeAsteroid(wrapper);
         asteroid.setPosition(position);
-        asteroid.setPolygon(getRandomAsteroid(MEDIUM));
+        asteroid.setShape(getRandomAsteroid(MEDIUM_SHAPES));
         asteroid.setSize(PrototypeAsteroid.Size.Medium);
         return asteroid;
     }
@@ -136,23 +142,29 @@ public class PrototypeAsteroidFactory {
     public PrototypeAsteroid createSmallAsteroid(Vector2f position) {
         PrototypeAsteroid asteroid = new PrototypeAsteroid(wrapper);
         asteroid.setPosition(position);
-        asteroid.setPolygon(getRandomAsteroid(SMALL));
+        asteroid.setShape(getRandomAsteroid(SMALL_SHAPES));
         asteroid.setSize(PrototypeAsteroid.Size.Small);
         return asteroid;
     }
 
-    private Vector2f[] getRandomAsteroid(Vector2f[][] asteroids) {
-        return mirror(asteroids[rand.nextInt(asteroids.length)]);
+    private static Shape2f[][] createShapes(Vector2f[][] templates) {
+        Shape2f[][] shapes = new Shape2f[templates.length][];
+        for (int i = 0; i < templates.length; i++) {
+            Shape2f shape = new Shape2f(templates[i]);
+            shapes[i] = new Shape2f[] {
+                    shape,
+                    shape.scale(-1.0f, 1.0f),
+                    shape.scale(1.0f, -1.0f),
+                    shape.scale(-1.0f, -1.0f)
+            };
+        }
+        return shapes;
     }
 
-    private Vector2f[] mirror(Vector2f[] polygon) {
-        Vector2f[] mirror = new Vector2f[polygon.length];
-        float x = rand.nextBoolean() ? 1.0f : -1.0f;
-        float y = rand.nextBoolean() ? 1.0f : -1.0f;
-        Matrix3x3f mat = Matrix3x3f.scale(x, y);
-        for (int i = 0; i < polygon.length; i++) {
-            mirror[i] = mat.mul(polygon[i]);
-        }
-        return mirror;
+    private Shape2f getRandomAsteroid(Shape2f[][] asteroids) {
+        Shape2f[] variants = asteroids[rand.nextInt(asteroids.length)];
+        int mirrorX = rand.nextBoolean() ? 0 : 1;
+        int mirrorY = rand.nextBoolean() ? 0 : 2;
+        return variants[mirrorX | mirrorY];
     }
 }
@@ -1,19 +1,53 @@
 package javagames.prototype;
 
 import javagames.util.Matrix3x3f;
+import javagames.util.Motion;
 import javagames.util.Vector2f;
+import javagames.util.Vector2fPool;
 
 import java.awt.*;
 
 public class PrototypeBullet {
-    private Vector2f velocity;
-    private Vector2f position;
+    private final Motion motion;
+    private final Vector2f position;
     private Color color;
     private float radius;
+    private final RenderState renderState = new RenderState();
+
+    /**
+     * Everything draw needs, kept apart from the simulation state so a
+     * copy can be drawn while the bullet keeps moving.
+     */
+    public static class RenderState {
+        private float x;
+        private float y;
+        private float radius;
+        private Color color;
+
+        public void draw(Graphics2D g, Matrix3x3f view) {
+            g.setColor(color);
+            Vector2fPool pool = Vector2fPool.get();
+            int mark = pool.mark();
+            Vector2f topLeft = pool.obtain().set(x - radius, y + radius);
+            view.mulInto(topLeft, topLeft);
+
+            Vector2f bottomRight = pool.obtain().set(x + radius, y - radius);
+            view.mulInto(bottomRight, bottomRight);
+
+            int circleX = (int)topLeft.x;
+            int circleY = (int)topLeft.y;
+            int circleWidth = (int)(bottomRight.x - topLeft.x);
+            int cirtleHeight = (int)(bottomRight.y - topLeft.y);
+            g.fillOval(circleX, circleY, circleWidth, cirtleHeight);
+            pool.release(mark);
+        }
+    }
 
     public PrototypeBullet(Vector2f position, float angle) {
-        this.position = position;
-        velocity = Vector2f.polar(angle, 1.0f);
+        this.position = new Vector2f(position);
+        motion = Motion.create();
+        motion.setPosition(position.x, position.y);
+        motion.setVelocityPolar(angle, 1.0f);
         radius = 0.006f;
         color = Color.GREEN;
     }
@@ -22,22 +56,24 @@ public class PrototypeBullet {
         return position;
     }
 
+    public int checksum() {
+        return motion.checksum();
+    }
+
+    public void copyRenderState(RenderState dest) {
+        dest.x = position.x;
+        dest.y = position.y;
+        dest.radius = radius;
+        dest.color = color;
+    }
+
     public void draw(Graphics2D g, Matrix3x3f view) {
-        g.setColor(color);
-        Vector2f topLeft = new Vector2f(position.x - radius, position.y + radius);
-        topLeft = view.mul(topLeft);
-
-        Vector2f bottomRight = new Vector2f(position.x + radius, position.y - radius);
-        bottomRight = view.mul(bottomRight);
-
-        int circleX = (int)topLeft.x;
-        int circleY = (int)topLeft.y;
-        int circleWidth = (int)(bottomRight.x - topLeft.x);
-        int cirtleHeight = (int)(bottomRight.y - topLeft.y);
-        g.fillOval(circleX, circleY, circleWidth, cirtleHeight);
+        copyRenderState(renderState);
+        renderState.draw(g, view);
     }
 
     public void update(float time) {
-        position = position.add(velocity.mul(time));
+        motion.integrate(time);
+        motion.getPosition(position);
     }
 }
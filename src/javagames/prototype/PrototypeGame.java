@@ -1,17 +1,25 @@
 package javagames.prototype;
 
+import javagames.util.BroadPhase;
 import javagames.util.Matrix3x3f;
+import javagames.util.RenderSnapshot;
 import javagames.util.SimpleFramework;
+import javagames.util.Updatable;
+import javagames.util.UpdateScheduler;
 import javagames.util.Vector2f;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
-import java.security.Key;
 import java.util.ArrayList;
 import java.util.Random;
 
 public class PrototypeGame extends SimpleFramework {
     private static final int STAR_COUNT = 1500;
+    private static final int STAR_CLUSTER_SIZE = 100;
+    private static final int STAR_UPDATE_INTERVAL = 4;
+    private static final long STAR_UPDATE_BUDGET_NANOS = 200_000L;
+    private static final Color[] STAR_SHADES = createShades(64);
+    private static final long ASTEROID_UPDATE_BUDGET_NANOS = 2_000_000L;
 
     private PrototypeShip ship;
     private PolygonWrapper wrapper;
@@ -19,16 +27,95 @@ public class PrototypeGame extends SimpleFramework {
 
     private ArrayList<PrototypeBullet> bullets;
     private ArrayList<PrototypeAsteroid> asteroids;
+    private UpdateScheduler<PrototypeAsteroid> asteroidUpdates;
+    // Indexed by position in asteroids; rebuilt whenever the list changes.
+    private BroadPhase broadPhase;
+    private boolean[] asteroidHit = new boolean[16];
+    private final ArrayList<PrototypeAsteroid> hitAsteroids = new ArrayList<>();
     private Random rand;
     private Vector2f[] stars;
-    private Color[] colors;
+    private float[] starBrightness;
+    private float[] starPhases;
+    private float[] starRates;
+    // Index into STAR_SHADES, set by the star clusters.
+    private byte[] starShades;
+    private UpdateScheduler<StarCluster> starUpdates;
+    private int[] starScreen;
+    private int starViewportVersion = -1;
+    private int bulletCounter;
+    private int asteroidCounter;
+    private int bulletHits;
+    private int candidates;
+    private int candidateCounter;
+    private int overrunCounter;
+    private int starDeferredCounter;
+
+    /**
+     * A slice of the star field that twinkles. Twinkling is decoration, so
+     * clusters are only updated every few frames and are the first work to
+     * be deferred when the frame is busy.
+     */
+    private class StarCluster implements Updatable {
+        private final int first;
+        private final int end;
+
+        StarCluster(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        public void update(float delta) {
+            for (int i = first; i < end; i++) {
+                starPhases[i] += starRates[i] * delta;
+                float brightness = starBrightness[i] * (0.75f + 0.25f * (float)Math.sin(starPhases[i]));
+                starShades[i] = (byte)Math.min((int)(brightness * STAR_SHADES.length), STAR_SHADES.length - 1);
+            }
+        }
+    }
+
+    /**
+     * Render state of the ship, asteroids, bullets and star shades. The
+     * per-entity states are reused from frame to frame and only grow.
+     */
+    private class Snapshot implements RenderSnapshot {
+        private final PrototypeShip.RenderState ship = new PrototypeShip.RenderState();
+        private final ArrayList<PrototypeAsteroid.RenderState> asteroids = new ArrayList<>();
+        private final ArrayList<PrototypeBullet.RenderState> bullets = new ArrayList<>();
+        private final byte[] starShades = new byte[STAR_COUNT];
+        private int asteroidCount;
+        private int bulletCount;
+
+        @Override
+        public void capture() {
+            PrototypeGame.this.ship.copyRenderState(ship);
+            System.arraycopy(PrototypeGame.this.starShades, 0, starShades, 0, STAR_COUNT);
+
+            asteroidCount = PrototypeGame.this.asteroids.size();
+            while (asteroids.size() < asteroidCount) {
+                asteroids.add(new PrototypeAsteroid.RenderState());
+            }
+            for (int i = 0; i < asteroidCount; i++) {
+                PrototypeGame.this.asteroids.get(i).copyRenderState(asteroids.get(i));
+            }
+
+            bulletCount = PrototypeGame.this.bullets.size();
+            while (bullets.size() < bulletCount) {
+                bullets.add(new PrototypeBullet.RenderState());
+            }
+            for (int i = 0; i < bulletCount; i++) {
+                PrototypeGame.this.bullets.get(i).copyRenderState(bullets.get(i));
+            }
+        }
+    }
 
     public PrototypeGame() {
         appBorderScale = 0.9f;
         appWidth = 640;
         appHeight = 640;
         appMaintainRatio = true;
-        appSleep = 1L;
+        appTargetFps = 60.0f;
+        appQueuedInput = true;
         appTitle = "Prototype Game";
     }
 
@@ -39,9 +126,21 @@ public class PrototypeGame extends SimpleFramework {
         rand = new Random();
         bullets = new ArrayList<>();
         asteroids = new ArrayList<>();
+        // The whole world is on screen and any asteroid can be hit, so none
+        // of them can skip frames and they get no interval policy. The
+        // scheduler only reports frames whose asteroid updates go over
+        // budget. The star field is the low-priority work; see StarCluster.
+        asteroidUpdates = new UpdateScheduler<>(ASTEROID_UPDATE_BUDGET_NANOS, null);
+        starUpdates = new UpdateScheduler<>(STAR_UPDATE_BUDGET_NANOS, cluster -> STAR_UPDATE_INTERVAL);
         wrapper = new PolygonWrapper(appWorldWidth, appWorldHeight);
         ship = new PrototypeShip(wrapper);
         factory = new PrototypeAsteroidFactory(wrapper);
+        broadPhase = BroadPhase.create(appWorldWidth, appWorldHeight);
+        bulletCounter = addCounter("bullets");
+        asteroidCounter = addCounter("asteroids");
+        overrunCounter = addCounter("update_overruns");
+        candidateCounter = addCounter("collision_candidates");
+        starDeferredCounter = addCounter("star_updates_deferred");
 
         createStars();
         createAsteroids();
@@ -49,24 +148,54 @@ public class PrototypeGame extends SimpleFramework {
 
     private void createStars() {
         stars = new Vector2f[STAR_COUNT];
-        colors = new Color[STAR_COUNT];
+        starBrightness = new float[STAR_COUNT];
+        starPhases = new float[STAR_COUNT];
+        starRates = new float[STAR_COUNT];
+        starShades = new byte[STAR_COUNT];
+        starScreen = new int[STAR_COUNT * 2];
         for (int i = 0; i < stars.length; i++) {
             float x = rand.nextFloat() * 2.0f - 1.0f;
             float y = rand.nextFloat() * 2.0f - 1.0f;
             stars[i] = new Vector2f(x, y);
-            float color = rand.nextFloat();
-            colors[i] = new Color(color, color, color);
+            starBrightness[i] = rand.nextFloat();
+            starPhases[i] = rand.nextFloat() * (float)(2.0 * Math.PI);
+            starRates[i] = 1.0f + rand.nextFloat() * 3.0f;
+        }
+        for (int first = 0; first < STAR_COUNT; first += STAR_CLUSTER_SIZE) {
+            StarCluster cluster = new StarCluster(first, Math.min(first + STAR_CLUSTER_SIZE, STAR_COUNT));
+            cluster.update(0.0f);
+            starUpdates.register(cluster);
         }
     }
 
+    private static Color[] createShades(int count) {
+        Color[] shades = new Color[count];
+        for (int i = 0; i < count; i++) {
+            float shade = (float)i / (count - 1);
+            shades[i] = new Color(shade, shade, shade);
+        }
+        return shades;
+    }
+
     private void createAsteroids() {
         asteroids.clear();
+        asteroidUpdates.clear();
         for (int i = 0; i < 4; i++) {
             Vector2f position = getAsteroidStartPosition();
-            asteroids.add(factory.createLargeAsteroid(position));
+            addAsteroid(factory.createLargeAsteroid(position));
         }
     }
 
+    private void addAsteroid(PrototypeAsteroid asteroid) {
+        asteroids.add(asteroid);
+        asteroidUpdates.register(asteroid);
+    }
+
+    private void removeAsteroid(PrototypeAsteroid asteroid) {
+        asteroids.remove(asteroid);
+        asteroidUpdates.unregister(asteroid);
+    }
+
     private Vector2f getAsteroidStartPosition() {
         float angle = (float)Math.toRadians(rand.nextInt(360));
         float minimum = appWorldWidth / 4;
@@ -86,7 +215,13 @@ public class PrototypeGame extends SimpleFramework {
             ship.rotateRight(delta);
         }
         if (keyboard.keyDownOnce(KeyEvent.VK_SPACE)) {
+            BulletSpawnEvent event = new BulletSpawnEvent();
+            event.begin();
             bullets.add(ship.launchBullet());
+            if (event.shouldCommit()) {
+                event.bullets = bullets.size();
+                event.commit();
+            }
         }
         if (keyboard.keyDownOnce(KeyEvent.VK_ESCAPE)) {
             createAsteroids();
@@ -97,60 +232,155 @@ public class PrototypeGame extends SimpleFramework {
     @Override
     protected void updateObjects(float delta) {
         super.updateObjects(delta);
+        candidates = 0;
         updateAsteroids(delta);
+        buildBroadPhase();
         updateBullets(delta);
         updateShip(delta);
+        starUpdates.update(delta);
+        setCounter(bulletCounter, bullets.size());
+        setCounter(asteroidCounter, asteroids.size());
+        setCounter(overrunCounter, asteroidUpdates.getOverrunCount());
+        setCounter(candidateCounter, candidates);
+        setCounter(starDeferredCounter, starUpdates.getLastDeferred());
     }
 
     private void updateAsteroids(float delta) {
-        for (PrototypeAsteroid asteroid : asteroids) {
-            asteroid.update(delta);
+        asteroidUpdates.update(delta);
+    }
+
+    private void buildBroadPhase() {
+        broadPhase.clear();
+        for (int i = 0; i < asteroids.size(); i++) {
+            PrototypeAsteroid asteroid = asteroids.get(i);
+            Vector2f position = asteroid.getPosition();
+            broadPhase.add(position.x, position.y, asteroid.getRadius());
         }
+        broadPhase.build();
     }
 
+    /**
+     * Bullets are compacted in place as they leave the world or hit. Hit
+     * asteroids are only flagged during the pass, so broad phase indices
+     * stay valid, and are split once every bullet has moved.
+     */
     private void updateBullets(float delta) {
-        ArrayList<PrototypeBullet> copy = new ArrayList<>(bullets);
-        for (PrototypeBullet bullet : copy) {
-            updateBullet(delta, bullet);
+        CollisionPassEvent event = new CollisionPassEvent();
+        event.begin();
+        bulletHits = 0;
+        int bulletCount = bullets.size();
+        int asteroidCount = asteroids.size();
+        if (asteroidHit.length < asteroidCount) {
+            asteroidHit = new boolean[Math.max(asteroidCount, asteroidHit.length * 2)];
+        }
+        int live = 0;
+        for (int i = 0; i < bulletCount; i++) {
+            PrototypeBullet bullet = bullets.get(i);
+            if (updateBullet(delta, bullet)) {
+                bullets.set(live++, bullet);
+            }
+        }
+        for (int i = bulletCount - 1; i >= live; i--) {
+            bullets.remove(i);
+        }
+        if (bulletHits > 0) {
+            splitHitAsteroids(asteroidCount);
+            buildBroadPhase();
+        }
+        if (event.shouldCommit()) {
+            event.pass = "bullets";
+            event.bullets = bulletCount;
+            event.asteroids = asteroidCount;
+            event.candidates = candidates;
+            event.hits = bulletHits;
+            event.commit();
         }
     }
 
-    private void updateBullet(float delta, PrototypeBullet bullet) {
+    /**
+     * Returns false if the bullet left the world or hit an asteroid.
+     */
+    private boolean updateBullet(float delta, PrototypeBullet bullet) {
         bullet.update(delta);
-        if(wrapper.hasLeftWorld(bullet.getPosition())) {
-            bullets.remove(bullet);
-        } else {
-            ArrayList<PrototypeAsteroid> ast = new ArrayList<>(asteroids);
-            for (PrototypeAsteroid asteroid : ast) {
-                if (asteroid.contains(bullet.getPosition())) {
-                    bullets.remove(bullet);
-                    asteroids.remove(asteroid);
-                    spawnBabies(asteroid);
-                }
+        Vector2f position = bullet.getPosition();
+        if (wrapper.hasLeftWorld(position)) {
+            return false;
+        }
+        boolean hit = false;
+        int found = broadPhase.query(position.x, position.y, 0.0f);
+        candidates += found;
+        for (int k = 0; k < found; k++) {
+            int index = broadPhase.getResult(k);
+            if (!asteroidHit[index] && asteroids.get(index).contains(position)) {
+                asteroidHit[index] = true;
+                bulletHits++;
+                hit = true;
             }
         }
+        return !hit;
+    }
+
+    private void splitHitAsteroids(int asteroidCount) {
+        ArrayList<PrototypeAsteroid> hit = hitAsteroids;
+        for (int i = 0; i < asteroidCount; i++) {
+            if (asteroidHit[i]) {
+                asteroidHit[i] = false;
+                hit.add(asteroids.get(i));
+            }
+        }
+        for (int i = 0; i < hit.size(); i++) {
+            PrototypeAsteroid asteroid = hit.get(i);
+            removeAsteroid(asteroid);
+            spawnBabies(asteroid);
+        }
+        hit.clear();
     }
 
     private void spawnBabies(PrototypeAsteroid asteroid) {
+        AsteroidSplitEvent event = new AsteroidSplitEvent();
+        event.begin();
+        int before = asteroids.size();
         if (asteroid.getSize() == PrototypeAsteroid.Size.Large) {
-            asteroids.add(factory.createMediumAsteroid(asteroid.getPosition()));
-            asteroids.add(factory.createMediumAsteroid(asteroid.getPosition()));
+            addAsteroid(factory.createMediumAsteroid(asteroid.getPosition()));
+            addAsteroid(factory.createMediumAsteroid(asteroid.getPosition()));
         }
         if (asteroid.getSize() == PrototypeAsteroid.Size.Medium) {
-            asteroids.add(factory.createSmallAsteroid(asteroid.getPosition()));
-            asteroids.add(factory.createSmallAsteroid(asteroid.getPosition()));
+            addAsteroid(factory.createSmallAsteroid(asteroid.getPosition()));
+            addAsteroid(factory.createSmallAsteroid(asteroid.getPosition()));
+        }
+        if (event.shouldCommit()) {
+            event.size = asteroid.getSize().name();
+            event.spawned = asteroids.size() - before;
+            event.asteroids = asteroids.size();
+            event.commit();
         }
     }
 
     private void updateShip(float delta) {
         ship.update(delta);
+        CollisionPassEvent event = new CollisionPassEvent();
+        event.begin();
         boolean isHit = false;
-        for (PrototypeAsteroid asteroid : asteroids) {
-            if (ship.isTouching(asteroid)) {
-                isHit = true;
-            }
+        Vector2f position = ship.getPosition();
+        int found = broadPhase.query(position.x, position.y, ship.getRadius());
+        candidates += found;
+        for (int k = 0; k < found && !isHit; k++) {
+            isHit = ship.isTouching(asteroids.get(broadPhase.getResult(k)));
         }
         ship.setDamaged(isHit);
+        if (event.shouldCommit()) {
+            event.pass = "ship";
+            event.bullets = bullets.size();
+            event.asteroids = asteroids.size();
+            event.candidates = found;
+            event.hits = isHit ? 1 : 0;
+            event.commit();
+        }
+    }
+
+    @Override
+    protected RenderSnapshot createRenderSnapshot() {
+        return new Snapshot();
     }
 
     @Override
@@ -164,34 +394,48 @@ public class PrototypeGame extends SimpleFramework {
         Graphics2D g2d = (Graphics2D)g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        Matrix3x3f view = getViewportTransform();
-        drawStars(g2d, view);
-        drawAsteriods(g2d, view);
-        drawBullets(g2d, view);
-        drawShip(g2d, view);
+        Viewport viewport = getViewport();
+        Matrix3x3f view = viewport.getTransform();
+        Snapshot snapshot = (Snapshot)getRenderSnapshot();
+        drawStars(g2d, viewport, snapshot);
+        drawAsteriods(g2d, view, snapshot);
+        drawBullets(g2d, view, snapshot);
+        drawShip(g2d, view, snapshot);
     }
 
-    private void drawStars(Graphics2D g, Matrix3x3f view) {
+    private void drawStars(Graphics2D g, Viewport viewport, Snapshot snapshot) {
+        // The stars never move, so their screen positions only change with
+        // the viewport.
+        int version = viewport.getVersion();
+        if (version != starViewportVersion) {
+            Matrix3x3f view = viewport.getTransform();
+            Vector2f screen = new Vector2f();
+            for (int i = 0; i < stars.length; i++) {
+                view.mulInto(stars[i], screen);
+                starScreen[i * 2] = (int)screen.x;
+                starScreen[i * 2 + 1] = (int)screen.y;
+            }
+            starViewportVersion = version;
+        }
         for (int i = 0; i < stars.length; i++) {
-            g.setColor(colors[i]);
-            Vector2f screen = view.mul(stars[i]);
-            g.fillRect((int)screen.x, (int)screen.y, 1, 1);
+            g.setColor(STAR_SHADES[snapshot.starShades[i]]);
+            g.fillRect(starScreen[i * 2], starScreen[i * 2 + 1], 1, 1);
         }
     }
 
-    private void drawShip(Graphics2D g, Matrix3x3f view) {
-        ship.draw(g, view);
+    private void drawShip(Graphics2D g, Matrix3x3f view, Snapshot snapshot) {
+        snapshot.ship.draw(g, view);
     }
 
-    private void drawAsteriods(Graphics2D g, Matrix3x3f view) {
-        for (PrototypeAsteroid asteroid : asteroids) {
-            asteroid.draw(g, view);
+    private void drawAsteriods(Graphics2D g, Matrix3x3f view, Snapshot snapshot) {
+        for (int i = 0; i < snapshot.asteroidCount; i++) {
+            snapshot.asteroids.get(i).draw(g, view);
         }
     }
 
-    private void drawBullets(Graphics2D g, Matrix3x3f view) {
-        for (PrototypeBullet b : bullets) {
-            b.draw(g, view);
+    private void drawBullets(Graphics2D g, Matrix3x3f view, Snapshot snapshot) {
+        for (int i = 0; i < snapshot.bulletCount; i++) {
+            snapshot.bullets.get(i).draw(g, view);
         }
     }
 
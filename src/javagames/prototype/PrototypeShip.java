@@ -1,29 +1,89 @@
 package javagames.prototype;
 
 import javagames.util.Matrix3x3f;
+import javagames.util.Motion;
+import javagames.util.Shape2f;
+import javagames.util.SinCos;
 import javagames.util.Utility;
 import javagames.util.Vector2f;
 
 import java.awt.*;
-import java.util.ArrayList;
 
 public class PrototypeShip {
-    private float angle;
+    private static final Shape2f POLYMAN = new Shape2f(new Vector2f[] {
+            new Vector2f(0.0325f, 0.0f),
+            new Vector2f(-0.0325f, -0.0325f),
+            new Vector2f(0.0f, 0.0f),
+            new Vector2f(-0.0325f, 0.0325f)
+    });
+
     private float acceleration;
     private float friction;
     private float maxVelocity;
     private float rotationDelta;
     private float curAcc;
 
-    private Vector2f position;
-    private Vector2f velocity;
+    private final Motion motion;
+    private final Vector2f position;
 
     private PolygonWrapper wrapper;
 
     private boolean damaged;
 
-    private Vector2f[] polyman;
-    private ArrayList<Vector2f[]> renderList;
+    private Shape2f polyman;
+    private float[] worldVertices;
+    // Bounding box of the template as center and half extents, and the
+    // same box rotated and moved with the ship.
+    private final float localBoundsX = (POLYMAN.getMinX() + POLYMAN.getMaxX()) * 0.5f;
+    private final float localBoundsY = (POLYMAN.getMinY() + POLYMAN.getMaxY()) * 0.5f;
+    private final float localHalfWidth = (POLYMAN.getMaxX() - POLYMAN.getMinX()) * 0.5f;
+    private final float localHalfHeight = (POLYMAN.getMaxY() - POLYMAN.getMinY()) * 0.5f;
+    private float boundsX;
+    private float boundsY;
+    private float boundsHalfWidth;
+    private float boundsHalfHeight;
+
+    private final Matrix3x3f world = new Matrix3x3f();
+    private final SinCos sinCos = new SinCos();
+    private final RenderState renderState = new RenderState();
+
+    /**
+     * Everything draw needs, kept apart from the simulation state so a
+     * copy can be drawn while the ship keeps moving.
+     */
+    public static class RenderState {
+        private Shape2f shape = POLYMAN;
+        private float x;
+        private float y;
+        private float cos = 1.0f;
+        private float sin;
+        private boolean damaged;
+        private final float[] offsets = new float[PolygonWrapper.MAX_COPIES * 2];
+        private int copyCount;
+        private final Matrix3x3f modelView = new Matrix3x3f();
+
+        public void set(RenderState other) {
+            shape = other.shape;
+            x = other.x;
+            y = other.y;
+            cos = other.cos;
+            sin = other.sin;
+            damaged = other.damaged;
+            copyCount = other.copyCount;
+            System.arraycopy(other.offsets, 0, offsets, 0, copyCount * 2);
+        }
+
+        public void draw(Graphics2D g, Matrix3x3f view) {
+            for (int i = 0; i < copyCount; i++) {
+                modelView.setTRS(cos, sin, x + offsets[i * 2], y + offsets[i * 2 + 1], 1.0f, 1.0f);
+                modelView.mulInto(view, modelView);
+                g.setColor(Color.DARK_GRAY);
+                Utility.fillPolygon(g, shape, modelView);
+                g.setColor(damaged ? Color.RED : Color.GREEN);
+                Utility.drawPolygon(g, shape, modelView);
+            }
+        }
+    }
 
     public PrototypeShip(PolygonWrapper wrapper) {
         this.wrapper = wrapper;
@@ -32,20 +92,27 @@ public class PrototypeShip {
         rotationDelta = (float)Math.toRadians(180.0);
         acceleration = 1.0f;
         maxVelocity = 0.5f;
-        velocity = new Vector2f();
+        motion = Motion.create();
 
         position = new Vector2f();
-        polyman = new Vector2f[] {
-                new Vector2f(0.0325f, 0.0f),
-                new Vector2f(-0.0325f, -0.0325f),
-                new Vector2f(0.0f, 0.0f),
-                new Vector2f(-0.0325f, 0.0325f)
-        };
-        renderList = new ArrayList<>();
+        polyman = POLYMAN;
+        worldVertices = new float[polyman.getVertexCount() * 2];
     }
 
     public void setDamaged(boolean damaged) {
         this.damaged = damaged;
+        renderState.damaged = damaged;
+    }
+
+    public Vector2f getPosition() {
+        return position;
+    }
+
+    /**
+     * Bounding radius around the position.
+     */
+    public float getRadius() {
+        return polyman.getRadius();
     }
 
     public boolean isDamaged() {
@@ -53,11 +120,11 @@ public class PrototypeShip {
     }
 
     public void rotateLeft(float delta) {
-        angle += rotationDelta * delta;
+        motion.rotate(rotationDelta, delta);
     }
 
     public void rotateRight(float delta) {
-        angle -= rotationDelta * delta;
+        motion.rotate(-rotationDelta, delta);
     }
 
     public void setThrusting(boolean thrusting) {
@@ -65,10 +132,15 @@ public class PrototypeShip {
     }
 
     public void setAngle(float angle) {
-        this.angle = angle;
+        motion.setAngle(angle);
+    }
+
+    public int checksum() {
+        return motion.checksum();
     }
 
     public PrototypeBullet launchBullet() {
+        float angle = motion.getAngle();
         Vector2f bulletPos = position.add(Vector2f.polar(angle, 0.0325f));
         return new PrototypeBullet(bulletPos, angle);
     }
@@ -76,57 +148,77 @@ public class PrototypeShip {
     public void update(float time) {
         updatePosition(time);
 
-        renderList.clear();
-        Vector2f[] world = transformPolygon();
-        renderList.add(world);
-        wrapper.wrapPolygon(world, renderList);
+        transformPolygon(worldVertices);
+        updateBounds();
+        RenderState state = renderState;
+        state.shape = polyman;
+        state.x = position.x;
+        state.y = position.y;
+        state.cos = sinCos.cos();
+        state.sin = sinCos.sin();
+        state.copyCount = wrapper.getWrapOffsets(position.x, position.y, polyman.getRadius(), state.offsets);
     }
 
-    private Vector2f[] transformPolygon() {
-        Matrix3x3f mat = Matrix3x3f.rotate(angle);
-        mat = mat.mul(Matrix3x3f.translate(position));
-        return transform(polyman, mat);
+    private void transformPolygon(float[] dest) {
+        sinCos.set(motion.getAngle());
+        world.setTRS(sinCos.cos(), sinCos.sin(), position.x, position.y, 1.0f, 1.0f);
+        polyman.transform(world, dest);
+    }
+
+    /**
+     * Rotates the template's box with sinCos, as set by transformPolygon,
+     * and moves it to the position.
+     */
+    private void updateBounds() {
+        float cos = sinCos.cos();
+        float sin = sinCos.sin();
+        float absCos = Math.abs(cos);
+        float absSin = Math.abs(sin);
+        boundsX = position.x + localBoundsX * cos - localBoundsY * sin;
+        boundsY = position.y + localBoundsX * sin + localBoundsY * cos;
+        boundsHalfWidth = localHalfWidth * absCos + localHalfHeight * absSin;
+        boundsHalfHeight = localHalfWidth * absSin + localHalfHeight * absCos;
     }
 
     private void updatePosition(float time) {
-        Vector2f accel = Vector2f.polar(angle, curAcc);
-        velocity = velocity.add(accel.mul(time));
-        float maxSpeed = Math.min(maxVelocity / velocity.len(), 1.0f);
-        velocity = velocity.mul(maxSpeed);
+        motion.accelerate(curAcc, time);
+        motion.clampSpeed(maxVelocity);
         float slowDown = 1.0f - friction*time;
-        velocity = velocity.mul(slowDown);
-        position = position.add(velocity.mul(time));
-        position = wrapper.wrapPosition(position);
+        motion.damp(slowDown);
+        motion.integrate(time);
+        wrapper.wrapPosition(motion);
+        motion.getPosition(position);
     }
 
-    private Vector2f[] transform(Vector2f[] poly, Matrix3x3f mat) {
-        Vector2f[] copy = new Vector2f[poly.length];
-        for (int i = 0; i < poly.length; i++) {
-            copy[i] = mat.mul(poly[i]);
-        }
-
-        return copy;
+    public void copyRenderState(RenderState dest) {
+        dest.set(renderState);
     }
 
     public void draw(Graphics2D g, Matrix3x3f view) {
-        g.setColor(new Color(50,50,50));
-        for (Vector2f[] poly : renderList) {
-            for (int i = 0; i < poly.length; i++) {
-                poly[i] = view.mul(poly[i]);
-            }
-            g.setColor(Color.DARK_GRAY);
-            Utility.fillPolygon(g, poly);
-            g.setColor(isDamaged() ? Color.RED : Color.GREEN);
-            Utility.drawPolygon(g, poly);
-        }
+        renderState.draw(g, view);
     }
 
+    /**
+     * Asteroid hit tests are wrap-aware, so only the unwrapped vertices need
+     * to be checked. Before that, the pair is rejected if the bounding
+     * circles are apart, then if the ship's bounding box misses the
+     * asteroid's.
+     */
     public boolean isTouching(PrototypeAsteroid asteroid) {
-        for (Vector2f[] poly : renderList) {
-            for (Vector2f v : poly) {
-                if (asteroid.contains(v)) {
-                    return true;
-                }
+        Vector2f center = asteroid.getPosition();
+        float dx = wrapper.shortestDeltaX(center.x - position.x);
+        float dy = wrapper.shortestDeltaY(center.y - position.y);
+        float reach = asteroid.getRadius() + polyman.getRadius();
+        if (dx * dx + dy * dy > reach * reach) {
+            return false;
+        }
+        if (Math.abs(wrapper.shortestDeltaX(asteroid.getBoundsX() - boundsX)) > asteroid.getBoundsHalfWidth() + boundsHalfWidth
+                || Math.abs(wrapper.shortestDeltaY(asteroid.getBoundsY() - boundsY)) > asteroid.getBoundsHalfHeight() + boundsHalfHeight) {
+            return false;
+        }
+        for (int i = 0; i < polyman.getVertexCount() * 2; i += 2) {
+            if (asteroid.contains(worldVertices[i], worldVertices[i + 1])) {
+                return true;
             }
         }
         return false;
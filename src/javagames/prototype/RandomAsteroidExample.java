@@ -13,13 +13,14 @@ public class RandomAsteroidExample extends SimpleFramework {
     private PrototypeAsteroidFactory factory;
     private ArrayList<PrototypeAsteroid> asteroids;
     private Random rand;
+    private int asteroidCounter;
 
     public RandomAsteroidExample() {
         appBorderScale = 0.9f;
         appWidth = 640;
         appHeight = 640;
         appMaintainRatio = true;
-        appSleep = 1L;
+        appTargetFps = 60.0f;
         appTitle = "Random Asteroids";
         appBackground = Color.WHITE;
         appFPSColor = Color.BLACK;
@@ -32,6 +33,7 @@ public class RandomAsteroidExample extends SimpleFramework {
         asteroids = new ArrayList<>();
         PolygonWrapper wrapper = new PolygonWrapper(appWorldWidth, appWorldHeight);
         factory = new PrototypeAsteroidFactory(wrapper);
+        asteroidCounter = addCounter("asteroids");
 
         createAsteroids();
     }
@@ -72,6 +74,7 @@ public class RandomAsteroidExample extends SimpleFramework {
         for (PrototypeAsteroid asteroid : asteroids) {
             asteroid.update(delta);
         }
+        setCounter(asteroidCounter, asteroids.size());
     }
 
     @Override
@@ -0,0 +1,110 @@
+package javagames.prototype;
+
+import javagames.util.Matrix3x3f;
+import javagames.util.VertexTransform;
+
+import java.util.Random;
+
+/**
+ * Compares the VECTOR transform backend with SCALAR. Each round transforms
+ * batches of 100 to 100,000 random vertices through a fresh model * view
+ * matrix with both backends, on interleaved buffers and on separate x and
+ * y arrays, and reports the time per vertex. The vector results must match
+ * the scalar ones within a small relative tolerance, since the vector
+ * backend is free to fuse or reorder operations; the process exits with
+ * status 1 if they do not, or if the vector backend cannot be loaded.
+ *
+ * Run with:
+ *   java --add-modules jdk.incubator.vector javagames.prototype.VertexTransformBenchmark [rounds]
+ */
+public class VertexTransformBenchmark {
+    private static final int[] VERTEX_COUNTS = { 100, 1_000, 10_000, 100_000 };
+    // The Vector API is very slow until C2 has compiled it, so small
+    // batches get more warm-up rounds.
+    private static final int WARMUP_VERTICES = 20_000_000;
+    private static final float TOLERANCE = 1.0E-5f;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        if (VertexTransform.setBackend(VertexTransform.Backend.VECTOR) != VertexTransform.Backend.VECTOR) {
+            System.out.println("FAILED: vector backend not available");
+            System.exit(1);
+        }
+        System.out.printf("%9s %16s %16s %16s %16s%n", "vertices",
+                "scalar ns/vert", "vector ns/vert", "scalar soa", "vector soa");
+        int mismatches = 0;
+        for (int n : VERTEX_COUNTS) {
+            mismatches += run(n, rounds);
+        }
+        if (mismatches > 0) {
+            System.out.println("FAILED: vector results differed from scalar in " + mismatches + " rounds");
+            System.exit(1);
+        }
+    }
+
+    private static int run(int count, int rounds) {
+        Random rand = new Random(count);
+        float[] xy = new float[count * 2];
+        float[] x = new float[count];
+        float[] y = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = rand.nextFloat() * 2.0f - 1.0f;
+            y[i] = rand.nextFloat() * 2.0f - 1.0f;
+            xy[i * 2] = x[i];
+            xy[i * 2 + 1] = y[i];
+        }
+        float[] scalarOut = new float[count * 2];
+        float[] vectorOut = new float[count * 2];
+        float[] scalarX = new float[count];
+        float[] scalarY = new float[count];
+        float[] vectorX = new float[count];
+        float[] vectorY = new float[count];
+
+        long[] nanos = new long[4];
+        int mismatches = 0;
+        int warmup = Math.max(10, WARMUP_VERTICES / count);
+        for (int round = 0; round < warmup + rounds; round++) {
+            Matrix3x3f mat = Matrix3x3f.fromTRS(rand.nextFloat() * 6.28f,
+                    rand.nextFloat() * 100.0f, rand.nextFloat() * 100.0f,
+                    rand.nextFloat() * 50.0f + 1.0f, -(rand.nextFloat() * 50.0f + 1.0f));
+
+            VertexTransform.setBackend(VertexTransform.Backend.SCALAR);
+            long t0 = System.nanoTime();
+            VertexTransform.transform(mat, xy, scalarOut, count);
+            long t1 = System.nanoTime();
+            VertexTransform.transform(mat, x, y, scalarX, scalarY, count);
+            long t2 = System.nanoTime();
+            VertexTransform.setBackend(VertexTransform.Backend.VECTOR);
+            long t3 = System.nanoTime();
+            VertexTransform.transform(mat, xy, vectorOut, count);
+            long t4 = System.nanoTime();
+            VertexTransform.transform(mat, x, y, vectorX, vectorY, count);
+            long t5 = System.nanoTime();
+
+            if (round >= warmup) {
+                nanos[0] += t1 - t0;
+                nanos[1] += t4 - t3;
+                nanos[2] += t2 - t1;
+                nanos[3] += t5 - t4;
+            }
+            if (!close(scalarOut, vectorOut) || !close(scalarX, vectorX) || !close(scalarY, vectorY)) {
+                mismatches++;
+            }
+        }
+
+        double vertices = (double)count * rounds;
+        System.out.printf("%9d %16.2f %16.2f %16.2f %16.2f%n", count,
+                nanos[0] / vertices, nanos[1] / vertices, nanos[2] / vertices, nanos[3] / vertices);
+        return mismatches;
+    }
+
+    private static boolean close(float[] expected, float[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            float limit = TOLERANCE * Math.max(1.0f, Math.abs(expected[i]));
+            if (!(Math.abs(expected[i] - actual[i]) <= limit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
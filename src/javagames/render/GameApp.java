@@ -2,6 +2,7 @@ package javagames.render;
 
 import javagames.prototype.PolygonWrapper;
 import javagames.util.Matrix3x3f;
+import javagames.util.Shape2f;
 import javagames.util.SimpleFramework;
 import javagames.util.Utility;
 import javagames.util.Vector2f;
@@ -9,13 +10,14 @@ import javagames.util.Vector2f;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
 
 public class GameApp extends SimpleFramework {
     private Vector2f pos;
-    private Vector2f[] poly;
-    private ArrayList<Vector2f[]> renderList;
+    private Shape2f poly;
+    private final float[] offsets = new float[PolygonWrapper.MAX_COPIES * 2];
+    private int copyCount;
     private PolygonWrapper wrapper;
+    private final Matrix3x3f modelView = new Matrix3x3f();
 
     public GameApp() {
         appBorderScale = 0.9f;
@@ -32,15 +34,14 @@ public class GameApp extends SimpleFramework {
         super.initialize();
 
         mouse.setRelative(true);
-        renderList = new ArrayList<>();
         wrapper = new PolygonWrapper(appWorldWidth, appWorldHeight);
 
-        poly = new Vector2f[] {
+        poly = new Shape2f(new Vector2f[] {
                 new Vector2f(-0.125f, 0.125f),
                 new Vector2f(0.125f, 0.125f),
                 new Vector2f(0.125f, -0.125f),
                 new Vector2f(-0.125f, -0.125f)
-        };
+        });
 
         pos = new Vector2f();
     }
@@ -68,19 +69,8 @@ public class GameApp extends SimpleFramework {
     protected void updateObjects(float delta) {
         super.updateObjects(delta);
 
-        renderList.clear();
         pos = wrapper.wrapPosition(pos);
-        Vector2f[] world = transform(poly, Matrix3x3f.translate(pos));
-        renderList.add(world);
-        wrapper.wrapPolygon(world, renderList);
-    }
-
-    private Vector2f[] transform(Vector2f[] poly, Matrix3x3f mat) {
-        Vector2f[] copy = new Vector2f[poly.length];
-        for (int i = 0; i < poly.length; i++) {
-            copy[i] = mat.mul(poly[i]);
-        }
-        return copy;
+        copyCount = wrapper.getWrapOffsets(pos.x, pos.y, poly.getRadius(), offsets);
     }
 
     @Override
@@ -90,11 +80,10 @@ public class GameApp extends SimpleFramework {
         g.drawString("Press space to toggle mouse", 20,35);
 
         Matrix3x3f view = getViewportTransform();
-        for (Vector2f[] toRender : renderList) {
-            for (int i = 0; i < toRender.length; i++) {
-                toRender[i] = view.mul(toRender[i]);
-            }
-            Utility.drawPolygon(g, toRender);
+        for (int i = 0; i < copyCount; i++) {
+            modelView.setTranslate(pos.x + offsets[i * 2], pos.y + offsets[i * 2 + 1]);
+            modelView.mulInto(view, modelView);
+            Utility.drawPolygon(g, poly, modelView);
         }
     }
 
@@ -0,0 +1,144 @@
+package javagames.util;
+
+import java.util.Arrays;
+
+/**
+ * Body storage, wrapping and query results shared by the BroadPhase
+ * implementations. A query stamps every body it looks at, so a body seen
+ * through several cells, nodes or wrapped copies is tested only once, and
+ * reports it only if the squares overlap on the wrapped world.
+ */
+abstract class AbstractBroadPhase implements BroadPhase {
+    private static final int INITIAL_CAPACITY = 64;
+
+    protected final float worldWidth;
+    protected final float worldHeight;
+    protected final float halfWidth;
+    protected final float halfHeight;
+
+    protected float[] xs = new float[INITIAL_CAPACITY];
+    protected float[] ys = new float[INITIAL_CAPACITY];
+    protected float[] radii = new float[INITIAL_CAPACITY];
+    protected int count;
+    protected float maxRadius;
+
+    private int[] stamps = new int[INITIAL_CAPACITY];
+    private int stamp;
+    private int[] results = new int[INITIAL_CAPACITY];
+    private int resultCount;
+    private final float[] wrapX = new float[3];
+    private final float[] wrapY = new float[3];
+
+    AbstractBroadPhase(float worldWidth, float worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        halfWidth = worldWidth / 2.0f;
+        halfHeight = worldHeight / 2.0f;
+    }
+
+    @Override
+    public void clear() {
+        count = 0;
+        maxRadius = 0.0f;
+    }
+
+    @Override
+    public int add(float x, float y, float radius) {
+        if (count == xs.length) {
+            int capacity = count * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            radii = Arrays.copyOf(radii, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+            results = Arrays.copyOf(results, capacity);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        radii[count] = radius;
+        stamps[count] = stamp;
+        maxRadius = Math.max(maxRadius, radius);
+        return count++;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int getResult(int i) {
+        return results[i];
+    }
+
+    protected void beginQuery() {
+        resultCount = 0;
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0, count, 0);
+            stamp = 1;
+        }
+    }
+
+    protected int endQuery() {
+        return resultCount;
+    }
+
+    /**
+     * Reports the body unless this query has already looked at it or its
+     * square does not overlap the query square.
+     */
+    protected void offer(int body, float x, float y, float radius) {
+        if (stamps[body] == stamp) {
+            return;
+        }
+        stamps[body] = stamp;
+        float reach = radii[body] + radius;
+        if (Math.abs(shortestDeltaX(xs[body] - x)) <= reach && Math.abs(shortestDeltaY(ys[body] - y)) <= reach) {
+            results[resultCount++] = body;
+        }
+    }
+
+    protected float shortestDeltaX(float dx) {
+        if (dx > halfWidth) {
+            return dx - worldWidth;
+        } else if (dx < -halfWidth) {
+            return dx + worldWidth;
+        }
+        return dx;
+    }
+
+    protected float shortestDeltaY(float dy) {
+        if (dy > halfHeight) {
+            return dy - worldHeight;
+        } else if (dy < -halfHeight) {
+            return dy + worldHeight;
+        }
+        return dy;
+    }
+
+    /**
+     * Writes the translations, as dx, dy pairs, that bring the parts of a
+     * box sticking out of the world back inside, starting with (0, 0).
+     * Returns the number of translations, at most 9.
+     */
+    protected int getWrapOffsets(float minX, float minY, float maxX, float maxY, float[] offsets) {
+        float[] dxs = wrapX;
+        float[] dys = wrapY;
+        int nx = 1;
+        int ny = 1;
+        dxs[0] = 0.0f;
+        dys[0] = 0.0f;
+        if (minX < -halfWidth) dxs[nx++] = worldWidth;
+        if (maxX > halfWidth) dxs[nx++] = -worldWidth;
+        if (minY < -halfHeight) dys[ny++] = worldHeight;
+        if (maxY > halfHeight) dys[ny++] = -worldHeight;
+        int n = 0;
+        for (int i = 0; i < nx; i++) {
+            for (int j = 0; j < ny; j++) {
+                offsets[n * 2] = dxs[i];
+                offsets[n * 2 + 1] = dys[j];
+                n++;
+            }
+        }
+        return n;
+    }
+}
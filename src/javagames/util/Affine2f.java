@@ -0,0 +1,164 @@
+package javagames.util;
+
+/**
+ * A 2D affine transform, the upper two columns of a Matrix3x3f whose third
+ * column is always (0, 0, 1). Uses the same row-vector convention, so
+ * a.mul(b) applies a first and then b.
+ */
+public class Affine2f {
+
+	// Same element names as the corresponding Matrix3x3f entries.
+	float m00, m01;
+	float m10, m11;
+	float m20, m21;
+
+	public Affine2f() {
+		setIdentity();
+	}
+
+	public Affine2f(Affine2f other) {
+		set(other);
+	}
+
+	public Affine2f(Matrix3x3f mat) {
+		mat.toAffine(this);
+	}
+
+	public Affine2f set(float m00, float m01, float m10, float m11, float m20, float m21) {
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m20 = m20;
+		this.m21 = m21;
+		return this;
+	}
+
+	public Affine2f set(Affine2f other) {
+		return set(other.m00, other.m01, other.m10, other.m11, other.m20, other.m21);
+	}
+
+	public Affine2f setIdentity() {
+		return set(1.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f);
+	}
+
+	public Affine2f setTranslate(float x, float y) {
+		return set(1.0f, 0.0f, 0.0f, 1.0f, x, y);
+	}
+
+	public Affine2f setScale(float x, float y) {
+		return set(x, 0.0f, 0.0f, y, 0.0f, 0.0f);
+	}
+
+	public Affine2f setRotate(float rad) {
+		float cos = (float)Math.cos(rad);
+		float sin = (float)Math.sin(rad);
+		return set(cos, sin, -sin, cos, 0.0f, 0.0f);
+	}
+
+	/**
+	 * Sets this transform to scale(sx, sy), then rotate, then
+	 * translate(tx, ty). See Matrix3x3f.setTRS.
+	 */
+	public Affine2f setTRS(float cos, float sin, float tx, float ty, float sx, float sy) {
+		return set(sx * cos, sx * sin, -sy * sin, sy * cos, tx, ty);
+	}
+
+	public float get(int row, int col) {
+		switch (row * 2 + col) {
+			case 0: return m00;
+			case 1: return m01;
+			case 2: return m10;
+			case 3: return m11;
+			case 4: return m20;
+			case 5: return m21;
+			default: throw new IndexOutOfBoundsException("(" + row + ", " + col + ")");
+		}
+	}
+
+	public Affine2f mul(Affine2f other) {
+		return mulInto(other, new Affine2f());
+	}
+
+	/**
+	 * Computes this * other and stores the result in dest, which may be
+	 * this or other. Returns dest.
+	 */
+	public Affine2f mulInto(Affine2f other, Affine2f dest) {
+		float r00 = m00 * other.m00 + m01 * other.m10;
+		float r01 = m00 * other.m01 + m01 * other.m11;
+		float r10 = m10 * other.m00 + m11 * other.m10;
+		float r11 = m10 * other.m01 + m11 * other.m11;
+		float r20 = m20 * other.m00 + m21 * other.m10 + other.m20;
+		float r21 = m20 * other.m01 + m21 * other.m11 + other.m21;
+		return dest.set(r00, r01, r10, r11, r20, r21);
+	}
+
+	public float determinant() {
+		return m00 * m11 - m01 * m10;
+	}
+
+	public Affine2f inverse() {
+		return invertInto(new Affine2f());
+	}
+
+	/**
+	 * Stores the inverse of this transform in dest, which may be this.
+	 * Returns dest.
+	 */
+	public Affine2f invertInto(Affine2f dest) {
+		float det = determinant();
+		if (det == 0.0f) {
+			throw new IllegalStateException("Transform is not invertible");
+		}
+		float invDet = 1.0f / det;
+		float i00 = m11 * invDet;
+		float i01 = -m01 * invDet;
+		float i10 = -m10 * invDet;
+		float i11 = m00 * invDet;
+		float i20 = -(m20 * i00 + m21 * i10);
+		float i21 = -(m20 * i01 + m21 * i11);
+		return dest.set(i00, i01, i10, i11, i20, i21);
+	}
+
+	public Vector2f transformPoint(Vector2f point) {
+		return transformPoint(point, new Vector2f());
+	}
+
+	/**
+	 * Transforms point, including translation, into dest, which may be
+	 * point. Returns dest.
+	 */
+	public Vector2f transformPoint(Vector2f point, Vector2f dest) {
+		return dest.set(
+			point.x * m00 + point.y * m10 + m20,
+			point.x * m01 + point.y * m11 + m21);
+	}
+
+	public Vector2f transformVector(Vector2f vec) {
+		return transformVector(vec, new Vector2f());
+	}
+
+	/**
+	 * Transforms vec, ignoring translation, into dest, which may be vec.
+	 * Returns dest.
+	 */
+	public Vector2f transformVector(Vector2f vec, Vector2f dest) {
+		return dest.set(
+			vec.x * m00 + vec.y * m10,
+			vec.x * m01 + vec.y * m11);
+	}
+
+	public Matrix3x3f toMatrix() {
+		return new Matrix3x3f().set(this);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("[").append(m00).append(",\t").append(m01).append("]\n");
+		buf.append("[").append(m10).append(",\t").append(m11).append("]\n");
+		buf.append("[").append(m20).append(",\t").append(m21).append("]\n");
+		return buf.toString();
+	}
+}
@@ -0,0 +1,83 @@
+package javagames.util;
+
+/**
+ * Broad-phase collision culling on a toroidal world of the given size,
+ * centered on the origin. Each frame the bodies, circles given by a center
+ * inside the world and a bounding radius below half the world size, are
+ * added with add and indexed with build. After that, query returns the
+ * bodies whose bounding squares overlap the query's, taking wrapping into
+ * account, so only those pairs have to go through an exact test. Every
+ * implementation returns the same bodies, in an unspecified order.
+ *
+ * Which implementation create() returns is chosen with the system property
+ * javagames.broadphase (hash, sweep, quadtree or brute). Nothing allocates
+ * once the internal arrays have grown to the body count.
+ */
+public interface BroadPhase {
+
+    enum Type {
+        HASH,
+        SWEEP,
+        QUADTREE,
+        BRUTE
+    }
+
+    String TYPE_PROPERTY = "javagames.broadphase";
+
+    static BroadPhase create(float worldWidth, float worldHeight) {
+        Type type = Type.HASH;
+        String name = System.getProperty(TYPE_PROPERTY);
+        if (name != null) {
+            try {
+                type = Type.valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown broad phase: " + name);
+            }
+        }
+        return create(type, worldWidth, worldHeight);
+    }
+
+    static BroadPhase create(Type type, float worldWidth, float worldHeight) {
+        switch (type) {
+            case SWEEP:
+                return new SweepAndPrune(worldWidth, worldHeight);
+            case QUADTREE:
+                return new Quadtree(worldWidth, worldHeight);
+            case BRUTE:
+                return new BruteForceBroadPhase(worldWidth, worldHeight);
+            default:
+                return new SpatialHash(worldWidth, worldHeight);
+        }
+    }
+
+    Type getType();
+
+    /**
+     * Removes all bodies.
+     */
+    void clear();
+
+    /**
+     * Adds a body and returns its index, which counts up from zero after
+     * each clear.
+     */
+    int add(float x, float y, float radius);
+
+    int size();
+
+    /**
+     * Indexes the bodies added since clear. Must be called before query.
+     */
+    void build();
+
+    /**
+     * Finds the bodies that may touch the given circle and returns how many
+     * there are; getResult reads them.
+     */
+    int query(float x, float y, float radius);
+
+    /**
+     * Index of the i-th body found by the last query.
+     */
+    int getResult(int i);
+}
@@ -0,0 +1,32 @@
+package javagames.util;
+
+/**
+ * Tests every body against every query. The reference the other broad
+ * phases are compared with, and the cheapest choice for a handful of
+ * bodies.
+ */
+public class BruteForceBroadPhase extends AbstractBroadPhase {
+
+    public BruteForceBroadPhase(float worldWidth, float worldHeight) {
+        super(worldWidth, worldHeight);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.BRUTE;
+    }
+
+    @Override
+    public void build() {
+
+    }
+
+    @Override
+    public int query(float x, float y, float radius) {
+        beginQuery();
+        for (int i = 0; i < count; i++) {
+            offer(i, x, y, radius);
+        }
+        return endQuery();
+    }
+}
@@ -0,0 +1,162 @@
+package javagames.util;
+
+/**
+ * Per-frame state of a set of keys or buttons built from press and release
+ * events, shared by the queued modes of KeyboardInput and RelativeMouseInput.
+ * The count for a code is 0 while up and the number of polls it has been
+ * down otherwise, the same as the polled arrays of the legacy mode.
+ *
+ * Only codes that are down or that changed are touched per poll. A press
+ * and release that both land between two polls still count as down for
+ * one poll. A release immediately followed by a press of a key that was
+ * already held, which is what key auto-repeat sends on some platforms, is
+ * treated as the key staying down.
+ */
+class ButtonStates {
+    private final int[] polled;
+    private final long[] pressTimes;
+    private final long[] releaseTimes;
+    private final boolean[] down;
+    private final boolean[] pressedNow;
+    private final boolean[] releasing;
+    private final boolean[] tapped;
+    private final boolean[] isChanged;
+    private final boolean[] inTaps;
+
+    // Codes that are down, with each code's position in the list.
+    private final int[] held;
+    private final int[] heldIndex;
+    private int heldCount;
+    private final int[] changed;
+    private int changedCount;
+    private final int[] taps;
+    private int tapCount;
+
+    ButtonStates(int count) {
+        polled = new int[count];
+        pressTimes = new long[count];
+        releaseTimes = new long[count];
+        down = new boolean[count];
+        pressedNow = new boolean[count];
+        releasing = new boolean[count];
+        tapped = new boolean[count];
+        isChanged = new boolean[count];
+        inTaps = new boolean[count];
+        held = new int[count];
+        heldIndex = new int[count];
+        changed = new int[count];
+        taps = new int[count];
+    }
+
+    int size() {
+        return polled.length;
+    }
+
+    int get(int code) {
+        return polled[code];
+    }
+
+    long getPressTime(int code) {
+        return pressTimes[code];
+    }
+
+    long getReleaseTime(int code) {
+        return releaseTimes[code];
+    }
+
+    /**
+     * Starts a poll: ends last poll's taps and advances the held codes.
+     */
+    void begin() {
+        for (int i = 0; i < tapCount; i++) {
+            int code = taps[i];
+            inTaps[code] = false;
+            if (tapped[code]) {
+                tapped[code] = false;
+                release(code);
+            }
+        }
+        tapCount = 0;
+        for (int i = 0; i < heldCount; i++) {
+            polled[held[i]]++;
+        }
+    }
+
+    /**
+     * Returns true if this is a new press rather than a repeat or the
+     * continuation of a held key.
+     */
+    boolean press(int code, long time) {
+        if (code < 0 || code >= polled.length) {
+            return false;
+        }
+        if (releasing[code]) {
+            releasing[code] = false;
+            return false;
+        }
+        if (tapped[code]) {
+            tapped[code] = false;
+            return false;
+        }
+        if (down[code]) {
+            return false;
+        }
+        down[code] = true;
+        polled[code] = 1;
+        pressTimes[code] = time;
+        pressedNow[code] = true;
+        heldIndex[code] = heldCount;
+        held[heldCount++] = code;
+        markChanged(code);
+        return true;
+    }
+
+    void release(int code, long time) {
+        if (code < 0 || code >= polled.length || !down[code]) {
+            return;
+        }
+        releaseTimes[code] = time;
+        if (pressedNow[code]) {
+            tapped[code] = true;
+            if (!inTaps[code]) {
+                inTaps[code] = true;
+                taps[tapCount++] = code;
+            }
+        } else {
+            releasing[code] = true;
+            markChanged(code);
+        }
+    }
+
+    /**
+     * Ends a poll: applies releases of codes that were held before it.
+     */
+    void end() {
+        for (int i = 0; i < changedCount; i++) {
+            int code = changed[i];
+            isChanged[code] = false;
+            pressedNow[code] = false;
+            if (releasing[code]) {
+                releasing[code] = false;
+                release(code);
+            }
+        }
+        changedCount = 0;
+    }
+
+    private void markChanged(int code) {
+        if (!isChanged[code]) {
+            isChanged[code] = true;
+            changed[changedCount++] = code;
+        }
+    }
+
+    private void release(int code) {
+        down[code] = false;
+        polled[code] = 0;
+        int index = heldIndex[code];
+        int last = held[--heldCount];
+        held[index] = last;
+        heldIndex[last] = index;
+    }
+}
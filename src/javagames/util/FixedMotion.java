@@ -0,0 +1,133 @@
+package javagames.util;
+
+/**
+ * Motion kept in 16.16 fixed point, with the heading wrapped to [0, 2 pi).
+ * Float arguments are converted on the way in, so identical inputs always
+ * produce identical state. The time step and tuning constants passed in
+ * are the same tick after tick, so each argument keeps its last conversion
+ * and only converts again when the value changes.
+ */
+public class FixedMotion implements Motion {
+    private final Vector2x position = new Vector2x();
+    private final Vector2x velocity = new Vector2x();
+    private int angle;
+
+    private final Conversion time = new Conversion();
+    private final Conversion rate = new Conversion();
+    private final Conversion accel = new Conversion();
+    private final Conversion maxSpeed = new Conversion();
+    private final Conversion damping = new Conversion();
+    private final Conversion worldWidth = new Conversion();
+    private final Conversion worldHeight = new Conversion();
+
+    /**
+     * Float to fixed point conversion that remembers its last result.
+     */
+    private static final class Conversion {
+        private float value = Float.NaN;
+        private int fixed;
+
+        int of(float value) {
+            if (Float.floatToRawIntBits(value) != Float.floatToRawIntBits(this.value)) {
+                this.value = value;
+                fixed = FixedPoint.fromFloat(value);
+            }
+            return fixed;
+        }
+    }
+
+    @Override
+    public void setPosition(float x, float y) {
+        position.set(x, y);
+    }
+
+    @Override
+    public float getX() {
+        return FixedPoint.toFloat(position.x);
+    }
+
+    @Override
+    public float getY() {
+        return FixedPoint.toFloat(position.y);
+    }
+
+    @Override
+    public Vector2f getPosition(Vector2f dest) {
+        return position.toVector2f(dest);
+    }
+
+    @Override
+    public void setAngle(float angle) {
+        this.angle = FixedPoint.wrapAngle(FixedPoint.fromFloat(angle));
+    }
+
+    @Override
+    public float getAngle() {
+        return FixedPoint.toFloat(angle);
+    }
+
+    @Override
+    public void setVelocityPolar(float angle, float speed) {
+        velocity.setPolar(FixedPoint.fromFloat(angle), FixedPoint.fromFloat(speed));
+    }
+
+    @Override
+    public void rotate(float rate, float time) {
+        angle = FixedPoint.wrapAngle(angle + FixedPoint.mul(this.rate.of(rate), this.time.of(time)));
+    }
+
+    @Override
+    public void accelerate(float accel, float time) {
+        int dv = FixedPoint.mul(this.accel.of(accel), this.time.of(time));
+        velocity.x += FixedPoint.mul(dv, FixedPoint.cos(angle));
+        velocity.y += FixedPoint.mul(dv, FixedPoint.sin(angle));
+    }
+
+    @Override
+    public void clampSpeed(float maxSpeed) {
+        int max = this.maxSpeed.of(maxSpeed);
+        int len = velocity.len();
+        if (len > max) {
+            velocity.x = (int)((long)velocity.x * max / len);
+            velocity.y = (int)((long)velocity.y * max / len);
+        }
+    }
+
+    @Override
+    public void damp(float factor) {
+        velocity.mulLocal(damping.of(factor));
+    }
+
+    @Override
+    public void integrate(float time) {
+        position.scaleAdd(this.time.of(time), velocity);
+    }
+
+    @Override
+    public void wrap(float worldWidth, float worldHeight) {
+        int width = this.worldWidth.of(worldWidth);
+        int height = this.worldHeight.of(worldHeight);
+        int maxX = width / 2;
+        int maxY = height / 2;
+        if (position.x < -maxX) {
+            position.x += width;
+        } else if (position.x > maxX) {
+            position.x -= width;
+        }
+        if (position.y < -maxY) {
+            position.y += height;
+        } else if (position.y > maxY) {
+            position.y -= height;
+        }
+    }
+
+    @Override
+    public int checksum() {
+        int hash = position.x;
+        hash = 31 * hash + position.y;
+        hash = 31 * hash + velocity.x;
+        hash = 31 * hash + velocity.y;
+        hash = 31 * hash + angle;
+        return hash;
+    }
+}
@@ -0,0 +1,87 @@
+package javagames.util;
+
+/**
+ * 16.16 fixed-point arithmetic. Values are ints scaled by ONE. Trig uses a
+ * table built with StrictMath and integer interpolation, so every result
+ * is bit-identical on every platform and JIT tier.
+ */
+public final class FixedPoint {
+    public static final int FRACTION_BITS = 16;
+    public static final int ONE = 1 << FRACTION_BITS;
+    public static final int HALF_PI = 102944;
+    public static final int PI = 205887;
+    public static final int TWO_PI = 411775;
+
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int[] SIN = new int[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SIN[i] = (int)StrictMath.round(StrictMath.sin(i * 2.0 * StrictMath.PI / TABLE_SIZE) * ONE);
+        }
+    }
+
+    private FixedPoint() {
+
+    }
+
+    public static int fromFloat(float value) {
+        return Math.round(value * ONE);
+    }
+
+    public static float toFloat(int value) {
+        return value / (float)ONE;
+    }
+
+    public static int mul(int a, int b) {
+        return (int)(((long)a * b) >> FRACTION_BITS);
+    }
+
+    public static int div(int a, int b) {
+        return (int)(((long)a << FRACTION_BITS) / b);
+    }
+
+    public static int sqrt(int value) {
+        return (int)isqrt((long)value << FRACTION_BITS);
+    }
+
+    /**
+     * Integer square root, rounded down.
+     */
+    public static long isqrt(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        long root = (long)Math.sqrt((double)value);
+        while (root * root > value) {
+            root--;
+        }
+        while ((root + 1) * (root + 1) <= value) {
+            root++;
+        }
+        return root;
+    }
+
+    /**
+     * The angle brought into [0, TWO_PI).
+     */
+    public static int wrapAngle(int angle) {
+        return Math.floorMod(angle, TWO_PI);
+    }
+
+    public static int sin(int angle) {
+        // Table position of the angle as a 16.16 value.
+        long pos = Math.floorDiv((long)angle * TABLE_SIZE << FRACTION_BITS, TWO_PI);
+        pos = Math.floorMod(pos, (long)TABLE_SIZE << FRACTION_BITS);
+        int index = (int)(pos >> FRACTION_BITS);
+        int frac = (int)(pos & (ONE - 1));
+        int a = SIN[index];
+        int b = SIN[index + 1];
+        return a + (int)(((long)(b - a) * frac) >> FRACTION_BITS);
+    }
+
+    public static int cos(int angle) {
+        return sin(angle + HALF_PI);
+    }
+}
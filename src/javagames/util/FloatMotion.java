@@ -0,0 +1,96 @@
+package javagames.util;
+
+public class FloatMotion implements Motion {
+    private final Vector2f position = new Vector2f();
+    private final Vector2f velocity = new Vector2f();
+    private final SinCos sinCos = new SinCos();
+    private float angle;
+
+    @Override
+    public void setPosition(float x, float y) {
+        position.set(x, y);
+    }
+
+    @Override
+    public float getX() {
+        return position.x;
+    }
+
+    @Override
+    public float getY() {
+        return position.y;
+    }
+
+    @Override
+    public Vector2f getPosition(Vector2f dest) {
+        return dest.set(position.x, position.y);
+    }
+
+    @Override
+    public void setAngle(float angle) {
+        this.angle = angle;
+    }
+
+    @Override
+    public float getAngle() {
+        return angle;
+    }
+
+    @Override
+    public void setVelocityPolar(float angle, float speed) {
+        velocity.setPolar(angle, speed);
+    }
+
+    @Override
+    public void rotate(float rate, float time) {
+        angle += rate * time;
+    }
+
+    @Override
+    public void accelerate(float accel, float time) {
+        sinCos.set(angle);
+        velocity.x += accel * sinCos.cos() * time;
+        velocity.y += accel * sinCos.sin() * time;
+    }
+
+    @Override
+    public void clampSpeed(float maxSpeed) {
+        velocity.mulLocal(Math.min(maxSpeed / velocity.len(), 1.0f));
+    }
+
+    @Override
+    public void damp(float factor) {
+        velocity.mulLocal(factor);
+    }
+
+    @Override
+    public void integrate(float time) {
+        position.scaleAdd(time, velocity);
+    }
+
+    @Override
+    public void wrap(float worldWidth, float worldHeight) {
+        float maxX = worldWidth / 2.0f;
+        float maxY = worldHeight / 2.0f;
+        if (position.x < -maxX) {
+            position.x += worldWidth;
+        } else if (position.x > maxX) {
+            position.x -= worldWidth;
+        }
+        if (position.y < -maxY) {
+            position.y += worldHeight;
+        } else if (position.y > maxY) {
+            position.y -= worldHeight;
+        }
+    }
+
+    @Override
+    public int checksum() {
+        int hash = Float.floatToIntBits(position.x);
+        hash = 31 * hash + Float.floatToIntBits(position.y);
+        hash = 31 * hash + Float.floatToIntBits(velocity.x);
+        hash = 31 * hash + Float.floatToIntBits(velocity.y);
+        hash = 31 * hash + Float.floatToIntBits(angle);
+        return hash;
+    }
+}
@@ -0,0 +1,80 @@
+package javagames.util;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds. Recording and
+ * querying never allocate. Durations are counted in buckets of equal width;
+ * anything beyond the last bucket lands in it, while the exact maximum is
+ * tracked separately.
+ */
+public class FrameHistogram {
+    public static final long DEFAULT_BUCKET_NANOS = 50_000L;
+    public static final int DEFAULT_BUCKET_COUNT = 2000;
+
+    private final long bucketNanos;
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long max;
+
+    public FrameHistogram() {
+        this(DEFAULT_BUCKET_NANOS, DEFAULT_BUCKET_COUNT);
+    }
+
+    public FrameHistogram(long bucketNanos, int bucketCount) {
+        this.bucketNanos = bucketNanos;
+        counts = new long[bucketCount];
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0L) {
+            nanos = 0L;
+        }
+        int bucket = (int)Math.min(nanos / bucketNanos, counts.length - 1);
+        counts[bucket]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Returns the duration below which the given fraction (0 to 1) of the
+     * samples fall, rounded up to the bucket edge and capped at the maximum.
+     */
+    public long getPercentile(double fraction) {
+        if (count == 0L) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long)Math.ceil(fraction * count));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min((i + 1) * bucketNanos, max);
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count > 0L ? sum / count : 0L;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0L;
+        }
+        count = 0L;
+        sum = 0L;
+        max = 0L;
+    }
+}
@@ -0,0 +1,104 @@
+package javagames.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds the game loop to a target frame rate. Frames are scheduled on a
+ * fixed grid of deadlines, so a frame that finishes late is followed by a
+ * shorter wait and the average rate does not drift. If the loop falls more
+ * than a whole frame behind, the grid is restarted from the current time
+ * instead of rushing through the missed frames.
+ *
+ * Waiting parks the thread until the deadline is spinNanos away and then
+ * spins for the rest, which avoids both the coarse granularity of
+ * Thread.sleep and the cost of spinning for the whole wait.
+ */
+public class FramePacer {
+    public static final long DEFAULT_SPIN_NANOS = 200_000L;
+
+    private long frameNanos;
+    private long spinNanos = DEFAULT_SPIN_NANOS;
+    private long lastDeadline;
+    private long lastWaitNanos;
+    private volatile Thread waiter;
+    private volatile boolean wakeRequested;
+
+    /**
+     * Sets the target rate; zero or less means unlimited.
+     */
+    public void setTargetFps(float fps) {
+        long nanos = fps > 0.0f ? (long)(1.0E9 / fps) : 0L;
+        if (nanos != frameNanos) {
+            frameNanos = nanos;
+            lastDeadline = 0L;
+        }
+    }
+
+    public float getTargetFps() {
+        return frameNanos > 0L ? (float)(1.0E9 / frameNanos) : 0.0f;
+    }
+
+    public void setSpinNanos(long spinNanos) {
+        this.spinNanos = spinNanos;
+    }
+
+    /**
+     * Blocks until the next frame is due and returns the time spent waiting.
+     */
+    public long waitForNextFrame() {
+        long start = System.nanoTime();
+        if (frameNanos <= 0L) {
+            lastWaitNanos = 0L;
+            return 0L;
+        }
+        long deadline = lastDeadline + frameNanos;
+        if (lastDeadline == 0L || start - deadline > frameNanos) {
+            deadline = start;
+        }
+        long remaining;
+        boolean interrupted = false;
+        waiter = Thread.currentThread();
+        while (!wakeRequested && (remaining = deadline - System.nanoTime()) > spinNanos) {
+            LockSupport.parkNanos(this, remaining - spinNanos);
+            // A pending interrupt makes parkNanos return at once. Clear it
+            // while waiting and restore it afterwards for the caller.
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+        }
+        while (!wakeRequested && deadline - System.nanoTime() > 0L) {
+            Thread.onSpinWait();
+        }
+        waiter = null;
+        if (wakeRequested) {
+            wakeRequested = false;
+            deadline = System.nanoTime();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        lastDeadline = deadline;
+        lastWaitNanos = System.nanoTime() - start;
+        return lastWaitNanos;
+    }
+
+    /**
+     * Ends the current wait, or the next one if none is in progress, right
+     * away and restarts the deadline grid from then. Safe to call from any
+     * thread, e.g. to resume full speed as soon as the window gets focus.
+     */
+    public void wakeUp() {
+        wakeRequested = true;
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Time spent in the most recent waitForNextFrame call.
+     */
+    public long getLastWaitNanos() {
+        return lastWaitNanos;
+    }
+}
@@ -0,0 +1,29 @@
+package javagames.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering one phase of one frame, emitted by FrameProfiler.
+ */
+@Name("javagames.FramePhase")
+@Label("Frame Phase")
+@Category({"Java Games", "Frame"})
+@Description("Input, update, render, present or wait phase of a game loop frame")
+class FramePhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Frame")
+    long frame;
+
+    @Label("Ticks")
+    @Description("Fixed-step updates simulated in the frame")
+    int ticks;
+
+    @Label("Counters")
+    @Description("Counters registered by the game, e.g. bullets=12 asteroids=40")
+    String counters;
+}
@@ -0,0 +1,210 @@
+package javagames.util;
+
+import jdk.jfr.EventType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the phases of each frame with System.nanoTime and keeps a
+ * FrameHistogram per phase. Phases may be entered several times per frame,
+ * e.g. several fixed-step updates, and are summed. The game loop calls
+ * beginFrame, then end(phase) as each phase finishes, then endFrame.
+ *
+ * While a JFR recording has the javagames.FramePhase event enabled, each
+ * phase is also recorded as an event so it lines up with GC and JIT
+ * activity in the recording. The events are held until endFrame, which
+ * fills in the frame's tick count and counters and commits them. With the
+ * event disabled nothing is allocated.
+ *
+ * It also keeps an input latency histogram: the time from the arrival of
+ * an input event to the return of the present that first showed its
+ * effect. Frames without new input record nothing.
+ */
+public class FrameProfiler {
+    public enum Phase {
+        INPUT,
+        UPDATE,
+        RENDER,
+        PRESENT,
+        WAIT,
+        FRAME
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final EventType PHASE_EVENTS = EventType.getEventType(FramePhaseEvent.class);
+    // Latencies span several frames, so use coarser buckets up to 500 ms.
+    private static final long LATENCY_BUCKET_NANOS = 100_000L;
+    private static final int LATENCY_BUCKET_COUNT = 5000;
+
+    private final FrameHistogram[] histograms = new FrameHistogram[PHASES.length];
+    private final long[] current = new long[PHASES.length];
+    private final long[] last = new long[PHASES.length];
+    private final FrameHistogram inputLatency = new FrameHistogram(LATENCY_BUCKET_NANOS, LATENCY_BUCKET_COUNT);
+    private long currentLatency = -1L;
+    private long lastLatency = -1L;
+    private long frameStart;
+    private long mark;
+    private long frameIndex;
+    private FramePhaseEvent event;
+    private final List<FramePhaseEvent> pending = new ArrayList<>();
+
+    public FrameProfiler() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new FrameHistogram();
+        }
+    }
+
+    public void beginFrame() {
+        frameStart = System.nanoTime();
+        mark = frameStart;
+        for (int i = 0; i < current.length; i++) {
+            current[i] = 0L;
+        }
+        currentLatency = -1L;
+        beginEvent();
+    }
+
+    /**
+     * Charges the time since the previous end call, or since beginFrame, to
+     * the given phase.
+     */
+    public void end(Phase phase) {
+        long now = System.nanoTime();
+        current[phase.ordinal()] += now - mark;
+        mark = now;
+        if (event != null) {
+            event.end();
+            event.phase = phase.name();
+            event.frame = frameIndex;
+            pending.add(event);
+        }
+        beginEvent();
+    }
+
+    /**
+     * Charges time measured elsewhere, e.g. on another thread, to the given
+     * phase without moving the mark.
+     */
+    public void add(Phase phase, long nanos) {
+        current[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Records the input latency of the current frame. If called more than
+     * once per frame the largest value is kept.
+     */
+    public void recordInputLatency(long nanos) {
+        if (nanos > currentLatency) {
+            currentLatency = nanos;
+        }
+    }
+
+    private void beginEvent() {
+        if (PHASE_EVENTS.isEnabled()) {
+            event = new FramePhaseEvent();
+            event.begin();
+        } else {
+            event = null;
+        }
+    }
+
+    /**
+     * Ends the frame and commits its phase events with the number of ticks
+     * simulated and the values of the named counters. Slots with a null
+     * name are left out.
+     */
+    public void endFrame(int ticks, String[] counterNames, long[] counters) {
+        current[Phase.FRAME.ordinal()] = System.nanoTime() - frameStart;
+        for (int i = 0; i < current.length; i++) {
+            histograms[i].record(current[i]);
+            last[i] = current[i];
+        }
+        if (currentLatency >= 0L) {
+            inputLatency.record(currentLatency);
+        }
+        lastLatency = currentLatency;
+        frameIndex++;
+        event = null;
+        if (!pending.isEmpty()) {
+            commitEvents(ticks, formatCounters(counterNames, counters));
+        }
+    }
+
+    private void commitEvents(int ticks, String counters) {
+        for (FramePhaseEvent e : pending) {
+            e.ticks = ticks;
+            e.counters = counters;
+            e.commit();
+        }
+        pending.clear();
+    }
+
+    private static String formatCounters(String[] names, long[] values) {
+        if (names == null) {
+            return "";
+        }
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                if (buf.length() > 0) {
+                    buf.append(' ');
+                }
+                buf.append(names[i]).append('=').append(values[i]);
+            }
+        }
+        return buf.toString();
+    }
+
+    public long getLastNanos(Phase phase) {
+        return last[phase.ordinal()];
+    }
+
+    public FrameHistogram getHistogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * Input latency of the last finished frame, or -1 if it presented no
+     * new input.
+     */
+    public long getLastInputLatency() {
+        return lastLatency;
+    }
+
+    public FrameHistogram getInputLatencyHistogram() {
+        return inputLatency;
+    }
+
+    public void reset() {
+        for (FrameHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        inputLatency.reset();
+    }
+
+    /**
+     * Multi-line summary of p50/p95/p99/max per phase, and of the input
+     * latency once there is any, in milliseconds. Meant
+     * for logging; it allocates.
+     */
+    public String report() {
+        StringBuilder buf = new StringBuilder();
+        for (Phase phase : PHASES) {
+            appendReport(buf, phase.name(), histograms[phase.ordinal()]);
+        }
+        if (inputLatency.getCount() > 0L) {
+            appendReport(buf, "LATENCY", inputLatency);
+        }
+        return buf.toString();
+    }
+
+    private static void appendReport(StringBuilder buf, String name, FrameHistogram h) {
+        buf.append(String.format("%-7s p50 %7.3f  p95 %7.3f  p99 %7.3f  max %7.3f ms%n",
+                name,
+                h.getPercentile(0.50) / 1.0E6,
+                h.getPercentile(0.95) / 1.0E6,
+                h.getPercentile(0.99) / 1.0E6,
+                h.getMax() / 1.0E6));
+    }
+}
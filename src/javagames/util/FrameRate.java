@@ -1,29 +1,49 @@
 package javagames.util;
 
 public class FrameRate {
+	// "FPS n" strings, built once per value so the display never allocates
+	// once warmed up.
+	private static final String[] LABELS = new String[1024];
+
 	private String frameRate;
 	private long lastTime;
 	private long delta;
 	private int frameCount;
-	
+	private int fps;
+
 	public void initialize() {
-		lastTime = System.currentTimeMillis();
-		frameRate = "FPS 0";
+		lastTime = System.nanoTime();
+		frameRate = label(0);
 	}
-	
+
 	public void calculate() {
-		long current = System.currentTimeMillis();
+		long current = System.nanoTime();
 		delta += current - lastTime;
 		lastTime = current;
 		frameCount++;
-		if (delta > 1000) {
-			delta -= 1000;
-			frameRate = String.format("FPS %s", frameCount);
+		if (delta > 1_000_000_000L) {
+			delta -= 1_000_000_000L;
+			fps = frameCount;
+			frameRate = label(frameCount);
 			frameCount = 0;
 		}
 	}
-	
+
 	public String getFrameRate() {
 		return frameRate;
 	}
+
+	public int getFps() {
+		return fps;
+	}
+
+	private static String label(int fps) {
+		if (fps >= LABELS.length) {
+			return String.format("FPS %s", fps);
+		}
+		if (LABELS[fps] == null) {
+			LABELS[fps] = String.format("FPS %s", fps);
+		}
+		return LABELS[fps];
+	}
 }
@@ -0,0 +1,223 @@
+package javagames.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Flight recorder for stutters. Keeps the last N frames in a preallocated
+ * ring: phase timings from a FrameProfiler, GC count and time, bytes
+ * allocated by the game thread, and any counters the game registers, such
+ * as entity counts. When a frame's work, everything but the wait for the
+ * next frame, takes longer than the budget the ring is copied to a second
+ * buffer and a background thread writes it to a CSV file in the hitches
+ * directory, so the game thread never touches the file system. While a
+ * dump is being written further hitches are counted but not dumped.
+ *
+ * Off unless a budget is given, for example with
+ * -Djavagames.hitch.budget=20 for 20 ms.
+ *
+ * Must be created on the game thread, whose allocations it tracks, and
+ * fed from the thread that renders. Everything except addCounter is
+ * allocation-free.
+ */
+public class HitchRecorder {
+    public static final String BUDGET_PROPERTY = "javagames.hitch.budget";
+    public static final String DIRECTORY_PROPERTY = "javagames.hitch.dir";
+    public static final int MAX_COUNTERS = 8;
+    // Startup frames are dominated by class loading and JIT compilation.
+    private static final int WARMUP_FRAMES = 60;
+
+    private static final FrameProfiler.Phase[] PHASES = FrameProfiler.Phase.values();
+    // Per frame: index, end time, phases, GC count, GC time, allocated bytes.
+    private static final int FIXED_FIELDS = 2 + PHASES.length + 3;
+    private static final int STRIDE = FIXED_FIELDS + MAX_COUNTERS;
+
+    private final int capacity;
+    private final long budgetNanos;
+    private final long[] ring;
+    private final long[] snapshot;
+    private int head;
+    private int size;
+    private long frameIndex;
+    private final long startNanos = System.nanoTime();
+
+    private final String[] counterNames = new String[MAX_COUNTERS];
+    private final long[] counters = new long[MAX_COUNTERS];
+    private int counterCount;
+
+    private final RuntimeStats stats = new RuntimeStats(Thread.currentThread());
+    private long lastAllocated = -1L;
+
+    private final File directory;
+    private volatile boolean writing;
+    private int snapshotSize;
+    private int dumpCount;
+    private int missedHitches;
+    private Thread writer;
+
+    /**
+     * Records the last capacity frames and dumps them whenever the work
+     * of a frame takes longer than budgetNanos. A budget of zero or less
+     * disables the recorder.
+     */
+    public HitchRecorder(int capacity, long budgetNanos) {
+        this.capacity = capacity;
+        this.budgetNanos = budgetNanos;
+        ring = new long[capacity * STRIDE];
+        snapshot = new long[capacity * STRIDE];
+        directory = new File(System.getProperty(DIRECTORY_PROPERTY, "hitches"));
+    }
+
+    public boolean isEnabled() {
+        return budgetNanos > 0L;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Registers a named per-frame value and returns the slot to pass to
+     * setCounter. Returns -1 once MAX_COUNTERS are in use.
+     */
+    public int addCounter(String name) {
+        if (counterCount == MAX_COUNTERS) {
+            return -1;
+        }
+        counterNames[counterCount] = name;
+        return counterCount++;
+    }
+
+    /**
+     * Sets a counter's value. It is stored with every following frame until
+     * set again.
+     */
+    public void setCounter(int slot, long value) {
+        if (slot >= 0) {
+            counters[slot] = value;
+        }
+    }
+
+    public int getDumpCount() {
+        return dumpCount;
+    }
+
+    public int getMissedHitches() {
+        return missedHitches;
+    }
+
+    /**
+     * Stores the frame the profiler just finished and starts a dump if it
+     * went over budget.
+     */
+    public void endFrame(FrameProfiler profiler) {
+        if (!isEnabled()) {
+            return;
+        }
+        stats.sample();
+        long allocated = stats.getAllocatedBytes();
+        long allocatedDelta = allocated >= 0L && lastAllocated >= 0L ? allocated - lastAllocated : -1L;
+        lastAllocated = allocated;
+
+        int base = head * STRIDE;
+        int i = base;
+        ring[i++] = frameIndex++;
+        ring[i++] = System.nanoTime() - startNanos;
+        for (FrameProfiler.Phase phase : PHASES) {
+            ring[i++] = profiler.getLastNanos(phase);
+        }
+        ring[i++] = stats.getGcCount();
+        ring[i++] = stats.getGcTimeMillis();
+        ring[i++] = allocatedDelta;
+        System.arraycopy(counters, 0, ring, i, MAX_COUNTERS);
+
+        head = (head + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+
+        long work = profiler.getLastNanos(FrameProfiler.Phase.FRAME) - profiler.getLastNanos(FrameProfiler.Phase.WAIT);
+        if (frameIndex > WARMUP_FRAMES && work > budgetNanos) {
+            dump();
+        }
+    }
+
+    private void dump() {
+        if (writing) {
+            missedHitches++;
+            return;
+        }
+        // Oldest frame first.
+        int oldest = (head - size + capacity) % capacity;
+        int firstPart = Math.min(size, capacity - oldest);
+        System.arraycopy(ring, oldest * STRIDE, snapshot, 0, firstPart * STRIDE);
+        System.arraycopy(ring, 0, snapshot, firstPart * STRIDE, (size - firstPart) * STRIDE);
+        snapshotSize = size;
+        dumpCount++;
+        writing = true;
+        if (writer == null) {
+            writer = new Thread(this::writeLoop, "HitchRecorder");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            while (!writing) {
+                LockSupport.park(this);
+            }
+            try {
+                write();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writing = false;
+        }
+    }
+
+    private void write() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = new File(directory, "hitch-" + System.currentTimeMillis() + "-" + dumpCount + ".csv");
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.print("frame,timeMs");
+            for (FrameProfiler.Phase phase : PHASES) {
+                out.print("," + phase.name().toLowerCase() + "Ms");
+            }
+            out.print(",gcCount,gcTimeMs,allocatedBytes");
+            for (int c = 0; c < counterCount; c++) {
+                out.print("," + counterNames[c]);
+            }
+            out.println();
+
+            for (int f = 0; f < snapshotSize; f++) {
+                int i = f * STRIDE;
+                out.print(snapshot[i++]);
+                out.print("," + millis(snapshot[i++]));
+                for (int p = 0; p < PHASES.length; p++) {
+                    out.print("," + millis(snapshot[i++]));
+                }
+                out.print("," + snapshot[i++]);
+                out.print("," + snapshot[i++]);
+                out.print("," + snapshot[i++]);
+                for (int c = 0; c < counterCount; c++) {
+                    out.print("," + snapshot[i + c]);
+                }
+                out.println();
+            }
+        }
+        System.err.println("Frame over budget, wrote " + file.getPath());
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1.0E6);
+    }
+}
@@ -0,0 +1,129 @@
+package javagames.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring buffer of input events stored as
+ * primitives: a type, a code (key or button), two ints (a position or a
+ * delta) and a System.nanoTime stamp. The AWT event thread offers, the game
+ * thread takes; neither locks or allocates. When the ring is full new
+ * events are dropped and counted.
+ */
+public class InputEventQueue {
+    public static final int KEY_PRESSED = 1;
+    public static final int KEY_RELEASED = 2;
+    public static final int BUTTON_PRESSED = 3;
+    public static final int BUTTON_RELEASED = 4;
+    public static final int MOUSE_MOVED = 5;
+    public static final int MOUSE_WHEEL = 6;
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int mask;
+    private final int[] types;
+    private final int[] codes;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] times;
+
+    // Next slot to write, published by the producer.
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to read, published by the consumer.
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedTail;
+    private long cachedHead;
+    private volatile long dropped;
+
+    private int type;
+    private int code;
+    private int x;
+    private int y;
+    private long time;
+
+    public InputEventQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * The capacity is rounded up to a power of two.
+     */
+    public InputEventQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        types = new int[size];
+        codes = new int[size];
+        xs = new int[size];
+        ys = new int[size];
+        times = new long[size];
+    }
+
+    /**
+     * Producer side. Returns false, and counts the event as dropped, if
+     * the queue is full.
+     */
+    public boolean offer(int type, int code, int x, int y, long time) {
+        long h = head.get();
+        if (h - cachedTail > mask) {
+            cachedTail = tail.get();
+            if (h - cachedTail > mask) {
+                dropped++;
+                return false;
+            }
+        }
+        int i = (int)h & mask;
+        types[i] = type;
+        codes[i] = code;
+        xs[i] = x;
+        ys[i] = y;
+        times[i] = time;
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Moves to the next event, whose fields are then
+     * returned by type(), code(), x(), y() and time(). Returns false if the
+     * queue is empty.
+     */
+    public boolean take() {
+        long t = tail.get();
+        if (t == cachedHead) {
+            cachedHead = head.get();
+            if (t == cachedHead) {
+                return false;
+            }
+        }
+        int i = (int)t & mask;
+        type = types[i];
+        code = codes[i];
+        x = xs[i];
+        y = ys[i];
+        time = times[i];
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    public int type() {
+        return type;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public int x() {
+        return x;
+    }
+
+    public int y() {
+        return y;
+    }
+
+    public long time() {
+        return time;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
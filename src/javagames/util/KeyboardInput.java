@@ -5,45 +5,152 @@ import java.awt.event.KeyListener;
 
 public class KeyboardInput implements KeyListener {
 
+	private static final int KEY_COUNT = 256;
+
 	private boolean[] keys;
 	private int[] polled;
-	
+
+	// Queued mode: listeners only append to the queue and poll replays it,
+	// so neither side takes a lock.
+	private final InputEventQueue queue;
+	private final ButtonStates states;
+	private long lastEventTime;
+	// Arrival of the earliest new press not yet polled, and of the earliest
+	// one the last poll consumed. Zero when there is none.
+	private long pressArrival;
+	private long polledPressTime;
+
 	public KeyboardInput() {
-		keys = new boolean[256];
-		polled = new int[256];
+		this(false);
+	}
+
+	/**
+	 * In queued mode key events go through a lock-free InputEventQueue
+	 * stamped with System.nanoTime, poll only touches keys that are down or
+	 * changed, and a press and release between two polls still reads as
+	 * down for one poll.
+	 */
+	public KeyboardInput(boolean queued) {
+		if (queued) {
+			queue = new InputEventQueue();
+			states = new ButtonStates(KEY_COUNT);
+		} else {
+			queue = null;
+			states = null;
+			keys = new boolean[KEY_COUNT];
+			polled = new int[KEY_COUNT];
+		}
+	}
+
+	public boolean isQueued() {
+		return queue != null;
 	}
-	
+
 	public boolean keyDown(int keyCode) {
-		return polled[keyCode] > 0;
+		return get(keyCode) > 0;
 	}
-	
+
 	public boolean keyDownOnce(int keyCode) {
-		return polled[keyCode] == 1;
+		return get(keyCode) == 1;
+	}
+
+	private int get(int keyCode) {
+		return queue != null ? states.get(keyCode) : polled[keyCode];
+	}
+
+	/**
+	 * Queued mode only: System.nanoTime of the latest press of the key, so
+	 * a fixed-step game can tell where in a tick it happened.
+	 */
+	public long getPressTime(int keyCode) {
+		return states.getPressTime(keyCode);
+	}
+
+	/**
+	 * Queued mode only: System.nanoTime of the latest release of the key.
+	 */
+	public long getReleaseTime(int keyCode) {
+		return states.getReleaseTime(keyCode);
 	}
-	
-	public synchronized void poll() {
-		for (int i = 0; i < keys.length; i++) {
-			if (keys[i]) {
-				polled[i]++;
+
+	/**
+	 * Queued mode only: stamp of the newest event applied by poll.
+	 */
+	public long getLastEventTime() {
+		return lastEventTime;
+	}
+
+	/**
+	 * System.nanoTime at which the earliest new key press consumed by the
+	 * last poll arrived, or 0 if it consumed none. Repeats of a held key do
+	 * not count. Used to measure input latency.
+	 */
+	public long getPolledPressTime() {
+		return polledPressTime;
+	}
+
+	public void poll() {
+		if (queue != null) {
+			pollQueue();
+			return;
+		}
+		synchronized (this) {
+			polledPressTime = pressArrival;
+			pressArrival = 0L;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i]) {
+					polled[i]++;
+				} else {
+					polled[i] = 0;
+				}
+			}
+		}
+	}
+
+	private void pollQueue() {
+		polledPressTime = 0L;
+		states.begin();
+		while (queue.take()) {
+			lastEventTime = queue.time();
+			if (queue.type() == InputEventQueue.KEY_PRESSED) {
+				if (states.press(queue.code(), queue.time()) && polledPressTime == 0L) {
+					polledPressTime = queue.time();
+				}
 			} else {
-				polled[i] = 0;
+				states.release(queue.code(), queue.time());
 			}
 		}
+		states.end();
 	}
-	
+
 	@Override
-	public synchronized void keyPressed(KeyEvent e) {
+	public void keyPressed(KeyEvent e) {
 		int keyCode = e.getKeyCode();
-		if (keyCode >= 0 && keyCode < keys.length) {
-			keys[keyCode] = true;
+		if (queue != null) {
+			queue.offer(InputEventQueue.KEY_PRESSED, keyCode, 0, 0, System.nanoTime());
+			return;
+		}
+		synchronized (this) {
+			if (keyCode >= 0 && keyCode < keys.length) {
+				if (!keys[keyCode] && pressArrival == 0L) {
+					pressArrival = System.nanoTime();
+				}
+				keys[keyCode] = true;
+			}
 		}
 	}
 
 	@Override
-	public synchronized void keyReleased(KeyEvent e) {
+	public void keyReleased(KeyEvent e) {
 		int keyCode = e.getKeyCode();
-		if (keyCode >= 0 && keyCode < keys.length) {
-			keys[keyCode] = false;
+		if (queue != null) {
+			queue.offer(InputEventQueue.KEY_RELEASED, keyCode, 0, 0, System.nanoTime());
+			return;
+		}
+		synchronized (this) {
+			if (keyCode >= 0 && keyCode < keys.length) {
+				keys[keyCode] = false;
+			}
 		}
 	}
 
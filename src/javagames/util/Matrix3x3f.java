@@ -2,128 +2,233 @@ package javagames.util;
 
 public class Matrix3x3f {
 
-	private float[][] m = new float[3][3];
-	
+	// Row-major: element (row, col) is stored at m[row * 3 + col].
+	private final float[] m = new float[9];
+
 	public Matrix3x3f() {
-		
+
 	}
-	
+
 	public Matrix3x3f(float[][] m) {
 		setMatrix(m);
 	}
-	
+
+	public Matrix3x3f(Matrix3x3f other) {
+		set(other);
+	}
+
 	public Matrix3x3f add(Matrix3x3f other) {
-		return new Matrix3x3f(new float[][] {
-			{ m[0][0] + other.m[0][0], m[0][1] + other.m[0][1], m[0][2] + other.m[0][2]	},
-			{ m[1][0] + other.m[1][0], m[1][1] + other.m[1][1], m[1][2] + other.m[1][2]	},
-			{ m[2][0] + other.m[2][0], m[2][1] + other.m[2][1], m[2][2] + other.m[2][2]	},
-		});
+		Matrix3x3f result = new Matrix3x3f();
+		for (int i = 0; i < 9; i++) {
+			result.m[i] = m[i] + other.m[i];
+		}
+		return result;
 	}
 
 	public Matrix3x3f sub(Matrix3x3f other) {
-		return new Matrix3x3f(new float[][] {
-			{ m[0][0] - other.m[0][0], m[0][1] - other.m[0][1], m[0][2] - other.m[0][2]	},
-			{ m[1][0] - other.m[1][0], m[1][1] - other.m[1][1], m[1][2] - other.m[1][2]	},
-			{ m[2][0] - other.m[2][0], m[2][1] - other.m[2][1], m[2][2] - other.m[2][2]	},
-		});
+		Matrix3x3f result = new Matrix3x3f();
+		for (int i = 0; i < 9; i++) {
+			result.m[i] = m[i] - other.m[i];
+		}
+		return result;
 	}
-	
+
 	public Matrix3x3f mul(Matrix3x3f other) {
-		return new Matrix3x3f(new float[][] {
-			{ m[0][0]*other.m[0][0] + m[0][1]*other.m[1][0] + m[0][2]*other.m[2][0],
-			  m[0][0]*other.m[0][1] + m[0][1]*other.m[1][1] + m[0][2]*other.m[2][1],
-			  m[0][0]*other.m[0][2] + m[0][1]*other.m[1][2] + m[0][2]*other.m[2][2], },
-			{ m[1][0]*other.m[0][0] + m[1][1]*other.m[1][0] + m[1][2]*other.m[2][0],
-			  m[1][0]*other.m[0][1] + m[1][1]*other.m[1][1] + m[1][2]*other.m[2][1],
-			  m[1][0]*other.m[0][2] + m[1][1]*other.m[1][2] + m[1][2]*other.m[2][2], },
-			{ m[2][0]*other.m[0][0] + m[2][1]*other.m[1][0] + m[2][2]*other.m[2][0],
-			  m[2][0]*other.m[0][1] + m[2][1]*other.m[1][1] + m[2][2]*other.m[2][1],
-			  m[2][0]*other.m[0][2] + m[2][1]*other.m[1][2] + m[2][2]*other.m[2][2], },
-			
-		});
-	}
-	
+		return mulInto(other, new Matrix3x3f());
+	}
+
+	/**
+	 * Computes this * other and stores the result in dest, which may be
+	 * this or other. Returns dest.
+	 */
+	public Matrix3x3f mulInto(Matrix3x3f other, Matrix3x3f dest) {
+		float[] a = m;
+		float[] b = other.m;
+		float r00 = a[0]*b[0] + a[1]*b[3] + a[2]*b[6];
+		float r01 = a[0]*b[1] + a[1]*b[4] + a[2]*b[7];
+		float r02 = a[0]*b[2] + a[1]*b[5] + a[2]*b[8];
+		float r10 = a[3]*b[0] + a[4]*b[3] + a[5]*b[6];
+		float r11 = a[3]*b[1] + a[4]*b[4] + a[5]*b[7];
+		float r12 = a[3]*b[2] + a[4]*b[5] + a[5]*b[8];
+		float r20 = a[6]*b[0] + a[7]*b[3] + a[8]*b[6];
+		float r21 = a[6]*b[1] + a[7]*b[4] + a[8]*b[7];
+		float r22 = a[6]*b[2] + a[7]*b[5] + a[8]*b[8];
+		return dest.set(r00, r01, r02, r10, r11, r12, r20, r21, r22);
+	}
+
 	public void setMatrix(float[][] m) {
-		this.m = m;
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				this.m[row * 3 + col] = m[row][col];
+			}
+		}
+	}
+
+	public Matrix3x3f set(Matrix3x3f other) {
+		System.arraycopy(other.m, 0, m, 0, 9);
+		return this;
+	}
+
+	public Matrix3x3f set(float m00, float m01, float m02,
+			float m10, float m11, float m12,
+			float m20, float m21, float m22) {
+		m[0] = m00; m[1] = m01; m[2] = m02;
+		m[3] = m10; m[4] = m11; m[5] = m12;
+		m[6] = m20; m[7] = m21; m[8] = m22;
+		return this;
+	}
+
+	public Matrix3x3f set(Affine2f a) {
+		return set(
+			a.m00, a.m01, 0.0f,
+			a.m10, a.m11, 0.0f,
+			a.m20, a.m21, 1.0f);
+	}
+
+	/**
+	 * Copies the first two columns into dest and returns it. The third
+	 * column is assumed to be (0, 0, 1).
+	 */
+	public Affine2f toAffine(Affine2f dest) {
+		return dest.set(m[0], m[1], m[3], m[4], m[6], m[7]);
+	}
+
+	public float get(int row, int col) {
+		return m[row * 3 + col];
+	}
+
+	public Matrix3x3f setZero() {
+		return set(
+			0.0f, 0.0f, 0.0f,
+			0.0f, 0.0f, 0.0f,
+			0.0f, 0.0f, 0.0f);
+	}
+
+	public Matrix3x3f setIdentity() {
+		return set(
+			1.0f, 0.0f, 0.0f,
+			0.0f, 1.0f, 0.0f,
+			0.0f, 0.0f, 1.0f);
 	}
-	
+
+	public Matrix3x3f setTranslate(float x, float y) {
+		return set(
+			1.0f, 0.0f, 0.0f,
+			0.0f, 1.0f, 0.0f,
+			   x,    y, 1.0f);
+	}
+
+	public Matrix3x3f setScale(float x, float y) {
+		return set(
+			   x, 0.0f, 0.0f,
+			0.0f,    y, 0.0f,
+			0.0f, 0.0f, 1.0f);
+	}
+
+	public Matrix3x3f setShear(float x, float y) {
+		return set(
+			1.0f,    y, 0.0f,
+			   x, 1.0f, 0.0f,
+			0.0f, 0.0f, 1.0f);
+	}
+
+	public Matrix3x3f setRotate(float rad) {
+		float cos = (float)Math.cos(rad);
+		float sin = (float)Math.sin(rad);
+		return set(
+			 cos,  sin, 0.0f,
+			-sin,  cos, 0.0f,
+			0.0f, 0.0f, 1.0f);
+	}
+
+	/**
+	 * Sets this matrix to scale(sx, sy) * rotate(rad) * translate(tx, ty),
+	 * i.e. scale first, then rotate, then translate, without computing the
+	 * intermediate products.
+	 */
+	public Matrix3x3f setTRS(float rad, float tx, float ty, float sx, float sy) {
+		return setTRS((float)Math.cos(rad), (float)Math.sin(rad), tx, ty, sx, sy);
+	}
+
+	/**
+	 * Same as setTRS(float, float, float, float, float) with the sine and
+	 * cosine of the angle already known.
+	 */
+	public Matrix3x3f setTRS(float cos, float sin, float tx, float ty, float sx, float sy) {
+		return set(
+			 sx * cos, sx * sin, 0.0f,
+			-sy * sin, sy * cos, 0.0f,
+			       tx,       ty, 1.0f);
+	}
+
+	public static Matrix3x3f fromTRS(float rad, float tx, float ty, float sx, float sy) {
+		return new Matrix3x3f().setTRS(rad, tx, ty, sx, sy);
+	}
+
 	public static Matrix3x3f zero() {
-		return new Matrix3x3f(new float[][] {
-			{ 0.0f, 0.0f, 0.0f },
-			{ 0.0f, 0.0f, 0.0f },
-			{ 0.0f, 0.0f, 0.0f }
-		});
+		return new Matrix3x3f().setZero();
 	}
-	
+
 	public static Matrix3x3f identity() {
-		return new Matrix3x3f(new float[][] {
-			{ 1.0f, 0.0f, 0.0f },
-			{ 0.0f, 1.0f, 0.0f },
-			{ 0.0f, 0.0f, 1.0f },
-		});
+		return new Matrix3x3f().setIdentity();
 	}
-	
+
 	public static Matrix3x3f translate(Vector2f v) {
 		return translate(v.x, v.y);
 	}
-	
+
 	public static Matrix3x3f translate(float x, float y) {
-		return new Matrix3x3f(new float[][] {
-			{ 1.0f, 0.0f, 0.0f },
-			{ 0.0f, 1.0f, 0.0f },
-			{   x,    y,  1.0f }
-		});
+		return new Matrix3x3f().setTranslate(x, y);
 	}
-	
+
 	public static Matrix3x3f scale(Vector2f v) {
 		return scale(v.x, v.y);
 	}
-	
+
 	public static Matrix3x3f scale(float x, float y) {
-		return new Matrix3x3f(new float[][] {
-			{    x, 0.0f, 0.0f },
-			{ 0.0f,    y, 0.0f },
-			{ 0.0f, 0.0f, 1.0f }
-		});
+		return new Matrix3x3f().setScale(x, y);
 	}
-	
+
 	public static Matrix3x3f shear(Vector2f v) {
 		return shear(v.x, v.y);
 	}
-	
+
 	public static Matrix3x3f shear(float x, float y) {
-		return new Matrix3x3f(new float[][] {
-			{ 1.0f,    y, 0.0f },
-			{    x, 1.0f, 0.0f },
-			{ 0.0f, 0.0f, 1.0f }
-		});
+		return new Matrix3x3f().setShear(x, y);
 	}
-	
+
 	public static Matrix3x3f rotate(float rad) {
-		return new Matrix3x3f(new float[][] {
-			{ (float) Math.cos(rad), (float)Math.sin(rad), 0.0f },
-			{ (float)-Math.sin(rad), (float)Math.cos(rad), 0.0f	},
-			{                  0.0f,                 0.0f, 1.0f }
-		});
+		return new Matrix3x3f().setRotate(rad);
 	}
-	
+
 	public Vector2f mul(Vector2f vec) {
-		return new Vector2f(
-				vec.x * m[0][0] + vec.y * m[1][0] + vec.w * m[2][0],
-				vec.x * m[0][1] + vec.y * m[1][1] + vec.w * m[2][1],
-				vec.x * m[0][2] + vec.y * m[1][2] + vec.w * m[2][2]);
+		return mulInto(vec, new Vector2f());
 	}
-	
+
+	/**
+	 * Transforms vec and stores the result in dest, which may be vec.
+	 * Returns dest.
+	 */
+	public Vector2f mulInto(Vector2f vec, Vector2f dest) {
+		float x = vec.x * m[0] + vec.y * m[3] + vec.w * m[6];
+		float y = vec.x * m[1] + vec.y * m[4] + vec.w * m[7];
+		float w = vec.x * m[2] + vec.y * m[5] + vec.w * m[8];
+		dest.x = x;
+		dest.y = y;
+		dest.w = w;
+		return dest;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder buf = new StringBuilder();
 		for (int i = 0; i < 3; i++) {
 			buf.append("[");
-			buf.append(m[i][0]);
+			buf.append(m[i * 3]);
 			buf.append(",\t");
-			buf.append(m[i][1]);
+			buf.append(m[i * 3 + 1]);
 			buf.append(",\t");
-			buf.append(m[i][2]);
+			buf.append(m[i * 3 + 2]);
 			buf.append("]\n");
 		}
 		return buf.toString();
@@ -0,0 +1,281 @@
+package javagames.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Serves frame and simulation statistics in the Prometheus text format on
+ * http://localhost:port/metrics, for charting long soak runs.
+ *
+ * The thread that renders calls endFrame every frame. It keeps its own
+ * histograms and once per second publishes percentiles, rates and JVM
+ * counters into an AtomicLongArray, which the HTTP thread reads without
+ * locking. The phase and latency summaries give quantiles over the last
+ * window and, as Prometheus expects, a running _sum and _count. Gauges
+ * registered with addGauge, such as entity counts, are published the same
+ * way. Nothing on the game thread blocks or allocates.
+ *
+ * Frames passed with profiled false, such as throttled idle frames, count
+ * towards the frame and tick totals and rates but are left out of the
+ * phase and latency summaries.
+ */
+public class MetricsEndpoint {
+    public static final String PORT_PROPERTY = "javagames.metrics.port";
+    public static final int MAX_GAUGES = 8;
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final FrameProfiler.Phase[] PHASES = FrameProfiler.Phase.values();
+    private static final double[] QUANTILES = { 0.5, 0.95, 0.99, 1.0 };
+
+    // Layout of the published values, each stored as double bits.
+    private static final int FRAMES_TOTAL = 0;
+    private static final int TICKS_TOTAL = 1;
+    private static final int FRAMES_PER_SECOND = 2;
+    private static final int TICKS_PER_SECOND = 3;
+    private static final int ALLOCATION_RATE = 4;
+    private static final int HEAP_USED = 5;
+    private static final int HEAP_MAX = 6;
+    private static final int GC_COUNT = 7;
+    private static final int GC_SECONDS = 8;
+    private static final int PHASE_COUNT = 9;
+    private static final int PHASE_QUANTILES = 10;
+    private static final int PHASE_SUMS = PHASE_QUANTILES + PHASES.length * QUANTILES.length;
+    private static final int LATENCY_QUANTILES = PHASE_SUMS + PHASES.length;
+    private static final int LATENCY_SUM = LATENCY_QUANTILES + QUANTILES.length;
+    private static final int LATENCY_COUNT = LATENCY_SUM + 1;
+    private static final int GAUGES = LATENCY_COUNT + 1;
+
+    private final AtomicLongArray values = new AtomicLongArray(GAUGES + MAX_GAUGES);
+    private final String[] gaugeNames = new String[MAX_GAUGES];
+    private volatile int gaugeCount;
+
+    private final FrameHistogram[] histograms = new FrameHistogram[PHASES.length];
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final FrameHistogram latency = new FrameHistogram(100_000L, 5000);
+    private long latencyNanos;
+    private long latencyCount;
+    private final RuntimeStats stats;
+    private long windowStart;
+    private long windowAllocated;
+    private long frames;
+    private long profiledFrames;
+    private long ticks;
+    private long windowFrames;
+    private long windowTicks;
+
+    private HttpServer server;
+
+    /**
+     * Must be created on the game thread, whose allocation rate is
+     * reported.
+     */
+    public MetricsEndpoint() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new FrameHistogram();
+        }
+        stats = new RuntimeStats(Thread.currentThread());
+        stats.sample();
+        windowStart = System.nanoTime();
+        windowAllocated = stats.getAllocatedBytes();
+    }
+
+    /**
+     * Starts serving on the loopback interface. Does nothing if the port is
+     * zero or less.
+     */
+    public void start(int port) throws IOException {
+        if (port <= 0 || server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Registers a gauge exported as javagames_&lt;name&gt; and returns the
+     * slot to pass to setGauge, or -1 once MAX_GAUGES are in use. The name
+     * must be a valid Prometheus metric name suffix.
+     */
+    public int addGauge(String name) {
+        int count = gaugeCount;
+        if (count == MAX_GAUGES) {
+            return -1;
+        }
+        gaugeNames[count] = name;
+        gaugeCount = count + 1;
+        return count;
+    }
+
+    public void setGauge(int slot, double value) {
+        if (slot >= 0) {
+            values.lazySet(GAUGES + slot, Double.doubleToRawLongBits(value));
+        }
+    }
+
+    /**
+     * Records the frame the profiler just finished, which ran the given
+     * number of simulation ticks, and publishes a new window once a second
+     * has passed. Its phase timings and input latency are only recorded if
+     * profiled is true.
+     */
+    public void endFrame(FrameProfiler profiler, int frameTicks, boolean profiled) {
+        if (profiled) {
+            for (int i = 0; i < PHASES.length; i++) {
+                long nanos = profiler.getLastNanos(PHASES[i]);
+                histograms[i].record(nanos);
+                phaseNanos[i] += nanos;
+            }
+            long inputLatency = profiler.getLastInputLatency();
+            if (inputLatency >= 0L) {
+                latency.record(inputLatency);
+                latencyNanos += inputLatency;
+                latencyCount++;
+            }
+            profiledFrames++;
+        }
+        frames++;
+        ticks += frameTicks;
+        windowFrames++;
+        windowTicks += frameTicks;
+
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            publish(elapsed / 1.0E9);
+            windowStart = now;
+        }
+    }
+
+    private void publish(double seconds) {
+        stats.sample();
+        long allocated = stats.getAllocatedBytes();
+        double allocationRate = allocated >= 0L && windowAllocated >= 0L
+                ? (allocated - windowAllocated) / seconds : Double.NaN;
+        windowAllocated = allocated;
+
+        put(FRAMES_TOTAL, frames);
+        put(TICKS_TOTAL, ticks);
+        put(FRAMES_PER_SECOND, windowFrames / seconds);
+        put(TICKS_PER_SECOND, windowTicks / seconds);
+        put(ALLOCATION_RATE, allocationRate);
+        put(HEAP_USED, stats.getHeapUsed());
+        put(HEAP_MAX, stats.getHeapMax());
+        put(GC_COUNT, stats.getGcCount());
+        put(GC_SECONDS, stats.getGcTimeMillis() / 1.0E3);
+        put(PHASE_COUNT, profiledFrames);
+        // A window of idle frames has no phase quantiles either.
+        for (int p = 0; p < PHASES.length; p++) {
+            FrameHistogram histogram = histograms[p];
+            for (int q = 0; q < QUANTILES.length; q++) {
+                put(PHASE_QUANTILES + p * QUANTILES.length + q, histogram.getCount() > 0L
+                        ? histogram.getPercentile(QUANTILES[q]) / 1.0E9 : Double.NaN);
+            }
+            histogram.reset();
+            put(PHASE_SUMS + p, phaseNanos[p] / 1.0E9);
+        }
+        // A window without input has no latency rather than zero.
+        for (int q = 0; q < QUANTILES.length; q++) {
+            put(LATENCY_QUANTILES + q, latency.getCount() > 0L
+                    ? latency.getPercentile(QUANTILES[q]) / 1.0E9 : Double.NaN);
+        }
+        put(LATENCY_SUM, latencyNanos / 1.0E9);
+        put(LATENCY_COUNT, latencyCount);
+        latency.reset();
+        windowFrames = 0L;
+        windowTicks = 0L;
+    }
+
+    private void put(int index, double value) {
+        values.lazySet(index, Double.doubleToRawLongBits(value));
+    }
+
+    private double get(int index) {
+        return Double.longBitsToDouble(values.get(index));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = format().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Current values in the Prometheus text exposition format.
+     */
+    public String format() {
+        StringBuilder buf = new StringBuilder();
+        metric(buf, "javagames_frames_total", "counter", "Frames rendered.", get(FRAMES_TOTAL));
+        metric(buf, "javagames_ticks_total", "counter", "Simulation ticks run.", get(TICKS_TOTAL));
+        metric(buf, "javagames_frames_per_second", "gauge", "Frames per second over the last window.", get(FRAMES_PER_SECOND));
+        metric(buf, "javagames_ticks_per_second", "gauge", "Simulation ticks per second over the last window.", get(TICKS_PER_SECOND));
+        metric(buf, "javagames_allocation_bytes_per_second", "gauge", "Bytes allocated per second by the game thread.", get(ALLOCATION_RATE));
+        metric(buf, "javagames_heap_used_bytes", "gauge", "Used heap.", get(HEAP_USED));
+        metric(buf, "javagames_heap_max_bytes", "gauge", "Maximum heap.", get(HEAP_MAX));
+        metric(buf, "javagames_gc_collections_total", "counter", "Garbage collections across all collectors.", get(GC_COUNT));
+        metric(buf, "javagames_gc_seconds_total", "counter", "Time spent in garbage collection.", get(GC_SECONDS));
+
+        buf.append("# HELP javagames_frame_phase_seconds Frame phase durations, quantiles over the last window.\n");
+        buf.append("# TYPE javagames_frame_phase_seconds summary\n");
+        for (int p = 0; p < PHASES.length; p++) {
+            String phase = PHASES[p].name().toLowerCase(Locale.ROOT);
+            for (int q = 0; q < QUANTILES.length; q++) {
+                buf.append("javagames_frame_phase_seconds{phase=\"").append(phase)
+                        .append("\",quantile=\"").append(QUANTILES[q]).append("\"} ")
+                        .append(get(PHASE_QUANTILES + p * QUANTILES.length + q)).append('\n');
+            }
+            buf.append("javagames_frame_phase_seconds_sum{phase=\"").append(phase).append("\"} ")
+                    .append(get(PHASE_SUMS + p)).append('\n');
+            // Every profiled frame records every phase.
+            buf.append("javagames_frame_phase_seconds_count{phase=\"").append(phase).append("\"} ")
+                    .append(get(PHASE_COUNT)).append('\n');
+        }
+
+        buf.append("# HELP javagames_input_latency_seconds Input arrival to present, quantiles over the last window.\n");
+        buf.append("# TYPE javagames_input_latency_seconds summary\n");
+        for (int q = 0; q < QUANTILES.length; q++) {
+            buf.append("javagames_input_latency_seconds{quantile=\"").append(QUANTILES[q]).append("\"} ")
+                    .append(get(LATENCY_QUANTILES + q)).append('\n');
+        }
+        buf.append("javagames_input_latency_seconds_sum ").append(get(LATENCY_SUM)).append('\n');
+        buf.append("javagames_input_latency_seconds_count ").append(get(LATENCY_COUNT)).append('\n');
+
+        int count = gaugeCount;
+        for (int i = 0; i < count; i++) {
+            metric(buf, "javagames_" + gaugeNames[i], "gauge", "Game-defined value.", get(GAUGES + i));
+        }
+        return buf.toString();
+    }
+
+    private static void metric(StringBuilder buf, String name, String type, String help, double value) {
+        buf.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        buf.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        buf.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,62 @@
+package javagames.util;
+
+/**
+ * Kinematic state of a simulated object: position, velocity and heading.
+ * The world is assumed to be centered on the origin. FloatMotion keeps the
+ * state in floats; FixedMotion keeps it in 16.16 fixed point so a replay
+ * produces identical state on every machine. Which one create() returns is
+ * chosen with the system property javagames.motion (float or fixed).
+ */
+public interface Motion {
+    String TYPE_PROPERTY = "javagames.motion";
+
+    static Motion create() {
+        if ("fixed".equalsIgnoreCase(System.getProperty(TYPE_PROPERTY))) {
+            return new FixedMotion();
+        }
+        return new FloatMotion();
+    }
+
+    void setPosition(float x, float y);
+
+    float getX();
+
+    float getY();
+
+    Vector2f getPosition(Vector2f dest);
+
+    void setAngle(float angle);
+
+    float getAngle();
+
+    void setVelocityPolar(float angle, float speed);
+
+    /**
+     * Turns the heading by rate * time.
+     */
+    void rotate(float rate, float time);
+
+    /**
+     * Adds accel * time to the velocity along the current heading.
+     */
+    void accelerate(float accel, float time);
+
+    void clampSpeed(float maxSpeed);
+
+    void damp(float factor);
+
+    /**
+     * Moves the position by velocity * time.
+     */
+    void integrate(float time);
+
+    /**
+     * Wraps the position to the opposite edge once it leaves the world.
+     */
+    void wrap(float worldWidth, float worldHeight);
+
+    /**
+     * Hash of the exact state, for comparing runs.
+     */
+    int checksum();
+}
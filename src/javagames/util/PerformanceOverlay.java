@@ -0,0 +1,276 @@
+package javagames.util;
+
+import java.awt.*;
+
+/**
+ * On-screen performance overlay: a rolling graph of frame times, bars for
+ * the average time spent in each frame phase, input latency, and the game
+ * thread's allocation rate, heap usage and GC activity. Text is formatted into a
+ * reusable char buffer and drawn with drawChars, so neither update nor
+ * draw allocates and the overlay does not show up in its own numbers.
+ *
+ * Must be created on the game thread, whose allocations it reports, and
+ * updated and drawn on the thread that renders.
+ */
+public class PerformanceOverlay {
+    private static final int HISTORY = 240;
+    private static final int GRAPH_HEIGHT = 60;
+    private static final float GRAPH_MAX_MILLIS = 50.0f;
+    private static final int BAR_WIDTH = 120;
+    // A full bar is one whole frame at 60 Hz.
+    private static final float BAR_MAX_MILLIS = 1000.0f / 60.0f;
+    private static final int LINE_HEIGHT = 14;
+    private static final long SAMPLE_NANOS = 500_000_000L;
+    // Weight of the newest frame in the phase averages.
+    private static final float SMOOTHING = 0.05f;
+    // Presses are far apart, so latency gets a faster average.
+    private static final float LATENCY_SMOOTHING = 0.25f;
+    private static final float MB = 1024.0f * 1024.0f;
+
+    private static final FrameProfiler.Phase[] PHASES = {
+        FrameProfiler.Phase.INPUT,
+        FrameProfiler.Phase.UPDATE,
+        FrameProfiler.Phase.RENDER,
+        FrameProfiler.Phase.PRESENT,
+        FrameProfiler.Phase.WAIT
+    };
+    private static final Color[] PHASE_COLORS = {
+        Color.CYAN,
+        Color.GREEN,
+        Color.ORANGE,
+        Color.MAGENTA,
+        Color.GRAY
+    };
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 180);
+    private static final Color GUIDE = new Color(255, 255, 255, 80);
+    private static final Color TEXT = Color.WHITE;
+    private static final Color FRAME_OK = Color.GREEN;
+    private static final Color FRAME_SLOW = Color.YELLOW;
+    private static final Color FRAME_HITCH = Color.RED;
+
+    private final float[] frameMillis = new float[HISTORY];
+    private int head;
+    private final float[] phaseMillis = new float[PHASES.length];
+    private float latencyMillis = -1.0f;
+    private float lastLatencyMillis;
+
+    private final RuntimeStats stats;
+    private long sampleStart;
+    private long sampleAllocated = -1L;
+    private float allocationRate = -1.0f;
+
+    private final char[] text = new char[64];
+    private int length;
+    private volatile boolean visible;
+
+    public PerformanceOverlay() {
+        stats = new RuntimeStats(Thread.currentThread());
+        stats.sample();
+        sampleStart = System.nanoTime();
+        sampleAllocated = stats.getAllocatedBytes();
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    public void toggle() {
+        visible = !visible;
+    }
+
+    /**
+     * Adds the frame the profiler just finished. Called every frame, shown
+     * or not, so the graph is already filled when the overlay is opened.
+     */
+    public void update(FrameProfiler profiler) {
+        frameMillis[head] = profiler.getLastNanos(FrameProfiler.Phase.FRAME) / 1.0E6f;
+        head = (head + 1) % HISTORY;
+        for (int i = 0; i < PHASES.length; i++) {
+            float ms = profiler.getLastNanos(PHASES[i]) / 1.0E6f;
+            phaseMillis[i] += (ms - phaseMillis[i]) * SMOOTHING;
+        }
+        long latency = profiler.getLastInputLatency();
+        if (latency >= 0L) {
+            lastLatencyMillis = latency / 1.0E6f;
+            latencyMillis = latencyMillis < 0.0f ? lastLatencyMillis
+                    : latencyMillis + (lastLatencyMillis - latencyMillis) * LATENCY_SMOOTHING;
+        }
+
+        long now = System.nanoTime();
+        if (now - sampleStart >= SAMPLE_NANOS) {
+            stats.sample();
+            long allocated = stats.getAllocatedBytes();
+            if (allocated >= 0L && sampleAllocated >= 0L) {
+                allocationRate = (allocated - sampleAllocated) / ((now - sampleStart) / 1.0E9f);
+            }
+            sampleAllocated = allocated;
+            sampleStart = now;
+        }
+    }
+
+    public int getWidth() {
+        return HISTORY + 20;
+    }
+
+    public int getHeight() {
+        return GRAPH_HEIGHT + (4 + PHASES.length) * LINE_HEIGHT + 25;
+    }
+
+    public void draw(Graphics g, int x, int y) {
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, getWidth(), getHeight());
+        g.setFont(FONT);
+
+        int left = x + 10;
+        int bottom = y + 10 + GRAPH_HEIGHT;
+        drawGraph(g, left, bottom);
+
+        int line = bottom + LINE_HEIGHT + 5;
+        for (int i = 0; i < PHASES.length; i++) {
+            int bar = Math.min(BAR_WIDTH, (int)(phaseMillis[i] / BAR_MAX_MILLIS * BAR_WIDTH));
+            g.setColor(PHASE_COLORS[i]);
+            g.fillRect(left + 120, line - 9, Math.max(1, bar), 8);
+            clear();
+            append(PHASES[i].name());
+            pad(9);
+            append(phaseMillis[i], 2);
+            drawText(g, left, line);
+            line += LINE_HEIGHT;
+        }
+
+        clear();
+        append("input");
+        pad(9);
+        if (latencyMillis < 0.0f) {
+            append("n/a");
+        } else {
+            append(latencyMillis, 2);
+            append(" ms, last ");
+            append(lastLatencyMillis, 2);
+        }
+        drawText(g, left, line);
+        line += LINE_HEIGHT;
+
+        clear();
+        append("alloc ");
+        if (allocationRate < 0.0f) {
+            append("n/a");
+        } else {
+            append(allocationRate / MB, 2);
+            append(" MB/s");
+        }
+        drawText(g, left, line);
+        line += LINE_HEIGHT;
+
+        clear();
+        append("heap  ");
+        append(stats.getHeapUsed() / MB, 1);
+        append(" / ");
+        append(stats.getHeapMax() / MB, 0);
+        append(" MB");
+        drawText(g, left, line);
+        line += LINE_HEIGHT;
+
+        clear();
+        append("gc    ");
+        append(stats.getGcCount());
+        append(" runs, ");
+        append(stats.getGcTimeMillis());
+        append(" ms");
+        drawText(g, left, line);
+    }
+
+    private void drawGraph(Graphics g, int left, int bottom) {
+        g.setColor(GUIDE);
+        for (float guide = 1000.0f / 60.0f; guide < GRAPH_MAX_MILLIS; guide += 1000.0f / 60.0f) {
+            int gy = bottom - (int)(guide / GRAPH_MAX_MILLIS * GRAPH_HEIGHT);
+            g.drawLine(left, gy, left + HISTORY - 1, gy);
+        }
+        // Oldest sample on the left.
+        for (int i = 0; i < HISTORY; i++) {
+            float ms = frameMillis[(head + i) % HISTORY];
+            if (ms <= 0.0f) {
+                continue;
+            }
+            if (ms > 2000.0f / 60.0f) {
+                g.setColor(FRAME_HITCH);
+            } else if (ms > 1000.0f / 55.0f) {
+                g.setColor(FRAME_SLOW);
+            } else {
+                g.setColor(FRAME_OK);
+            }
+            int h = Math.min(GRAPH_HEIGHT, (int)(ms / GRAPH_MAX_MILLIS * GRAPH_HEIGHT));
+            g.drawLine(left + i, bottom, left + i, bottom - h);
+        }
+    }
+
+    private void drawText(Graphics g, int x, int y) {
+        g.setColor(TEXT);
+        g.drawChars(text, 0, length, x, y);
+    }
+
+    private void clear() {
+        length = 0;
+    }
+
+    private void pad(int column) {
+        while (length < column && length < text.length) {
+            text[length++] = ' ';
+        }
+    }
+
+    private void append(String s) {
+        int n = Math.min(s.length(), text.length - length);
+        s.getChars(0, n, text, length);
+        length += n;
+    }
+
+    private void append(long value) {
+        if (value < 0L) {
+            append('-');
+            value = -value;
+        }
+        int start = length;
+        do {
+            append((char)('0' + value % 10L));
+            value /= 10L;
+        } while (value > 0L);
+        // Digits were written least significant first.
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = text[i];
+            text[i] = text[j];
+            text[j] = c;
+        }
+    }
+
+    private void append(float value, int decimals) {
+        if (value < 0.0f) {
+            append('-');
+            value = -value;
+        }
+        long scale = 1L;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10L;
+        }
+        long fixed = Math.round(value * scale);
+        append(fixed / scale);
+        if (decimals > 0) {
+            append('.');
+            long fraction = fixed % scale;
+            for (long digit = scale / 10L; digit > 0L; digit /= 10L) {
+                append((char)('0' + fraction / digit % 10L));
+            }
+        }
+    }
+
+    private void append(char c) {
+        if (length < text.length) {
+            text[length++] = c;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package javagames.util;
+
+import java.util.Arrays;
+
+/**
+ * Loose quadtree rebuilt by build. Every node is searched as if it were
+ * half its size larger on each side, so a square goes down to the child
+ * holding its center as long as it is no more than half that child's size.
+ * Unlike a strict quadtree, squares on a dividing line do not pile up near
+ * the root. A leaf splits once it holds more than NODE_CAPACITY squares.
+ * Squares sticking out of the world are also stored shifted back inside,
+ * and queries are repeated the same way, so wrapped contacts are found.
+ * Nodes and their item lists live in flat arrays that are reused from one
+ * build to the next.
+ */
+public class Quadtree extends AbstractBroadPhase {
+    private static final int NODE_CAPACITY = 8;
+    private static final int MAX_DEPTH = 10;
+
+    private int nodeCount;
+    private float[] nodeMinX = new float[64];
+    private float[] nodeMinY = new float[64];
+    private float[] nodeMaxX = new float[64];
+    private float[] nodeMaxY = new float[64];
+    // Index of the first of four children, or -1 for a leaf.
+    private int[] nodeChildren = new int[64];
+    private int[] nodeFirstItem = new int[64];
+    private int[] nodeItemCount = new int[64];
+    private int[] nodeDepth = new int[64];
+
+    private int itemCount;
+    private int[] itemBodies = new int[64];
+    private float[] itemMinX = new float[64];
+    private float[] itemMinY = new float[64];
+    private float[] itemMaxX = new float[64];
+    private float[] itemMaxY = new float[64];
+    private int[] itemNext = new int[64];
+
+    private final int[] stack = new int[3 * MAX_DEPTH + 4];
+    private final float[] offsets = new float[18];
+
+    public Quadtree(float worldWidth, float worldHeight) {
+        super(worldWidth, worldHeight);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.QUADTREE;
+    }
+
+    @Override
+    public void build() {
+        // Wrapped copies stick out of the world by up to the largest radius.
+        nodeCount = 0;
+        addNode(-halfWidth - maxRadius, -halfHeight - maxRadius, halfWidth + maxRadius, halfHeight + maxRadius, 0);
+        itemCount = 0;
+        for (int i = 0; i < count; i++) {
+            float r = radii[i];
+            float minX = xs[i] - r;
+            float minY = ys[i] - r;
+            float maxX = xs[i] + r;
+            float maxY = ys[i] + r;
+            int copies = getWrapOffsets(minX, minY, maxX, maxY, offsets);
+            for (int c = 0; c < copies; c++) {
+                float dx = offsets[c * 2];
+                float dy = offsets[c * 2 + 1];
+                insert(0, addItem(i, minX + dx, minY + dy, maxX + dx, maxY + dy));
+            }
+        }
+    }
+
+    private int addNode(float minX, float minY, float maxX, float maxY, int depth) {
+        if (nodeCount + 4 > nodeChildren.length) {
+            int capacity = nodeChildren.length * 2;
+            nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+            nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+            nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+            nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+            nodeChildren = Arrays.copyOf(nodeChildren, capacity);
+            nodeFirstItem = Arrays.copyOf(nodeFirstItem, capacity);
+            nodeItemCount = Arrays.copyOf(nodeItemCount, capacity);
+            nodeDepth = Arrays.copyOf(nodeDepth, capacity);
+        }
+        int node = nodeCount++;
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeMaxX[node] = maxX;
+        nodeMaxY[node] = maxY;
+        nodeChildren[node] = -1;
+        nodeFirstItem[node] = -1;
+        nodeItemCount[node] = 0;
+        nodeDepth[node] = depth;
+        return node;
+    }
+
+    private int addItem(int body, float minX, float minY, float maxX, float maxY) {
+        if (itemCount == itemBodies.length) {
+            int capacity = itemCount * 2;
+            itemBodies = Arrays.copyOf(itemBodies, capacity);
+            itemMinX = Arrays.copyOf(itemMinX, capacity);
+            itemMinY = Arrays.copyOf(itemMinY, capacity);
+            itemMaxX = Arrays.copyOf(itemMaxX, capacity);
+            itemMaxY = Arrays.copyOf(itemMaxY, capacity);
+            itemNext = Arrays.copyOf(itemNext, capacity);
+        }
+        int item = itemCount++;
+        itemBodies[item] = body;
+        itemMinX[item] = minX;
+        itemMinY[item] = minY;
+        itemMaxX[item] = maxX;
+        itemMaxY[item] = maxY;
+        return item;
+    }
+
+    private void insert(int node, int item) {
+        int child;
+        while (nodeChildren[node] >= 0 && (child = childContaining(node, item)) >= 0) {
+            node = child;
+        }
+        itemNext[item] = nodeFirstItem[node];
+        nodeFirstItem[node] = item;
+        nodeItemCount[node]++;
+        if (nodeChildren[node] < 0 && nodeItemCount[node] > NODE_CAPACITY && nodeDepth[node] < MAX_DEPTH) {
+            split(node);
+        }
+    }
+
+    /**
+     * Creates the four children and moves down every item that fits in
+     * one of them.
+     */
+    private void split(int node) {
+        float minX = nodeMinX[node];
+        float minY = nodeMinY[node];
+        float maxX = nodeMaxX[node];
+        float maxY = nodeMaxY[node];
+        float midX = (minX + maxX) * 0.5f;
+        float midY = (minY + maxY) * 0.5f;
+        int depth = nodeDepth[node] + 1;
+        int first = addNode(minX, minY, midX, midY, depth);
+        addNode(midX, minY, maxX, midY, depth);
+        addNode(minX, midY, midX, maxY, depth);
+        addNode(midX, midY, maxX, maxY, depth);
+        nodeChildren[node] = first;
+
+        int item = nodeFirstItem[node];
+        nodeFirstItem[node] = -1;
+        nodeItemCount[node] = 0;
+        while (item >= 0) {
+            int next = itemNext[item];
+            int child = childContaining(node, item);
+            int target = child >= 0 ? child : node;
+            itemNext[item] = nodeFirstItem[target];
+            nodeFirstItem[target] = item;
+            nodeItemCount[target]++;
+            item = next;
+        }
+    }
+
+    /**
+     * Child of node whose loose bounds contain the item, or -1 if the item
+     * is too large for the children.
+     */
+    private int childContaining(int node, int item) {
+        float childWidth = (nodeMaxX[node] - nodeMinX[node]) * 0.5f;
+        float childHeight = (nodeMaxY[node] - nodeMinY[node]) * 0.5f;
+        float width = itemMaxX[item] - itemMinX[item];
+        float height = itemMaxY[item] - itemMinY[item];
+        if (width > childWidth || height > childHeight) {
+            return -1;
+        }
+        float centerX = (itemMinX[item] + itemMaxX[item]) * 0.5f;
+        float centerY = (itemMinY[item] + itemMaxY[item]) * 0.5f;
+        int quadrant = centerX < nodeMinX[node] + childWidth ? 0 : 1;
+        if (centerY >= nodeMinY[node] + childHeight) {
+            quadrant += 2;
+        }
+        return nodeChildren[node] + quadrant;
+    }
+
+    @Override
+    public int query(float x, float y, float radius) {
+        beginQuery();
+        int copies = getWrapOffsets(x - radius, y - radius, x + radius, y + radius, offsets);
+        for (int c = 0; c < copies; c++) {
+            float qx = x + offsets[c * 2];
+            float qy = y + offsets[c * 2 + 1];
+            search(qx - radius, qy - radius, qx + radius, qy + radius, x, y, radius);
+        }
+        return endQuery();
+    }
+
+    private void search(float minX, float minY, float maxX, float maxY, float x, float y, float radius) {
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            float looseX = (nodeMaxX[node] - nodeMinX[node]) * 0.5f;
+            float looseY = (nodeMaxY[node] - nodeMinY[node]) * 0.5f;
+            if (nodeMinX[node] - looseX > maxX || nodeMaxX[node] + looseX < minX
+                    || nodeMinY[node] - looseY > maxY || nodeMaxY[node] + looseY < minY) {
+                continue;
+            }
+            for (int item = nodeFirstItem[node]; item >= 0; item = itemNext[item]) {
+                if (itemMinX[item] <= maxX && itemMaxX[item] >= minX && itemMinY[item] <= maxY && itemMaxY[item] >= minY) {
+                    offer(itemBodies[item], x, y, radius);
+                }
+            }
+            int children = nodeChildren[node];
+            if (children >= 0) {
+                stack[top++] = children;
+                stack[top++] = children + 1;
+                stack[top++] = children + 2;
+                stack[top++] = children + 3;
+            }
+        }
+    }
+}
@@ -8,14 +8,16 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.SwingUtilities;
 
 public class RelativeMouseInput implements MouseListener, MouseMotionListener, MouseWheelListener {
 
 	private static final int BUTTON_COUNT = 3;
-	private Point mousePos;
-	private Point currentPos;
+	// Position or relative motion returned by the last poll.
+	private int posX, posY;
+	private int currentX, currentY;
 	private boolean[] mouse;
 	private int[] polled;
 	private int notches;
@@ -24,28 +26,155 @@ public class RelativeMouseInput implements MouseListener, MouseMotionListener, M
 	private int dx, dy;
 	private Robot robot;
 	private Component component;
-	private boolean relative;
+	private volatile boolean relative;
+
+	// Relative motion is measured from the previous event rather than from
+	// the center, so the cursor only has to be recentered once per poll.
+	// A warp moves lastX, lastY to the center, and only the next event, if
+	// it lands exactly on warpX, warpY, is taken as the robot's echo. AWT
+	// may coalesce the echo with a user move, so warping is also cleared
+	// by the next poll rather than waiting for an exact match. Apart from
+	// that, these fields belong to the event thread.
+	private int lastX, lastY;
+	private volatile boolean warping;
+	private int warpX, warpY;
+	private final Point screenCenter = new Point();
+	private final AtomicBoolean recenterPending = new AtomicBoolean();
+	private final Runnable recenter = new Runnable() {
+		@Override
+		public void run() {
+			centerMouse();
+		}
+	};
+
+	// Queued mode: listeners only append to the queue and poll replays it,
+	// so neither side takes a lock.
+	private final InputEventQueue queue;
+	private final ButtonStates states;
+	private int queuedX, queuedY;
+	private long lastEventTime;
+	// Arrival of the earliest new press not yet polled, and of the earliest
+	// one the last poll consumed. Zero when there is none.
+	private long pressArrival;
+	private long polledPressTime;
 	
 	public RelativeMouseInput(Component component) {
+		this(component, false);
+	}
+
+	/**
+	 * In queued mode mouse events go through a lock-free InputEventQueue
+	 * stamped with System.nanoTime, and a click between two polls still
+	 * reads as a press for one poll. See KeyboardInput.
+	 */
+	public RelativeMouseInput(Component component, boolean queued) {
 		this.component = component;
+		queue = queued ? new InputEventQueue() : null;
+		states = queued ? new ButtonStates(BUTTON_COUNT) : null;
 		try {
 			robot = new Robot();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		mousePos = new Point(0,0);
-		currentPos = new Point(0,0);
 		mouse = new boolean[BUTTON_COUNT];
 		polled = new int[BUTTON_COUNT];
 	}
 	
-	public synchronized void poll() {
+	public boolean isQueued() {
+		return queue != null;
+	}
+
+	/**
+	 * Queued mode only: stamp of the newest event applied by poll.
+	 */
+	public long getLastEventTime() {
+		return lastEventTime;
+	}
+
+	/**
+	 * Queued mode only: System.nanoTime of the latest press of the button.
+	 */
+	public long getPressTime(int button) {
+		return states.getPressTime(button - 1);
+	}
+
+	/**
+	 * System.nanoTime at which the earliest new button press consumed by the
+	 * last poll arrived, or 0 if it consumed none. See KeyboardInput.
+	 */
+	public long getPolledPressTime() {
+		return polledPressTime;
+	}
+
+	public void poll() {
+		warping = false;
+		if (queue != null) {
+			pollQueue();
+		} else {
+			synchronized (this) {
+				pollLegacy();
+			}
+		}
+		if (isRelative() && (posX != 0 || posY != 0)) {
+			requestRecenter();
+		}
+	}
+
+	private void pollQueue() {
+		int dx = 0;
+		int dy = 0;
+		int wheel = 0;
+		polledPressTime = 0L;
+		states.begin();
+		while (queue.take()) {
+			lastEventTime = queue.time();
+			switch (queue.type()) {
+				case InputEventQueue.MOUSE_MOVED:
+					if (queue.code() != 0) {
+						dx += queue.x();
+						dy += queue.y();
+					} else {
+						queuedX = queue.x();
+						queuedY = queue.y();
+					}
+					break;
+				case InputEventQueue.BUTTON_PRESSED:
+					if (states.press(queue.code(), queue.time()) && polledPressTime == 0L) {
+						polledPressTime = queue.time();
+					}
+					break;
+				case InputEventQueue.BUTTON_RELEASED:
+					states.release(queue.code(), queue.time());
+					break;
+				case InputEventQueue.MOUSE_WHEEL:
+					wheel += queue.x();
+					break;
+				default:
+					break;
+			}
+		}
+		states.end();
+		if (isRelative()) {
+			posX = dx;
+			posY = dy;
+		} else {
+			posX = queuedX;
+			posY = queuedY;
+		}
+		polledNotches = wheel;
+	}
+
+	private void pollLegacy() {
 		if (isRelative()) {
-			mousePos = new Point(dx, dy);
+			posX = dx;
+			posY = dy;
 		} else {
-			mousePos = new Point(currentPos);
+			posX = currentX;
+			posY = currentY;
 		}
 		dx = dy = 0;
+		polledPressTime = pressArrival;
+		pressArrival = 0L;
 		polledNotches = notches;
 		notches = 0;
 		
@@ -65,12 +194,28 @@ public class RelativeMouseInput implements MouseListener, MouseMotionListener, M
 	public void setRelative(boolean relative) {
 		this.relative = relative;
 		if (relative) {
-			centerMouse();
+			requestRecenter();
 		}
 	}
 	
+	/**
+	 * Returns a new Point; getX and getY read the same values without
+	 * allocating.
+	 */
 	public Point getPosition() {
-		return mousePos;
+		return new Point(posX, posY);
+	}
+
+	/**
+	 * The x position, or in relative mode the x motion, read by the last
+	 * poll.
+	 */
+	public int getX() {
+		return posX;
+	}
+
+	public int getY() {
+		return posY;
 	}
 	
 	public int getNotches() {
@@ -78,11 +223,15 @@ public class RelativeMouseInput implements MouseListener, MouseMotionListener, M
 	}
 	
 	public boolean buttonDown(int button) {
-		return polled[button - 1] > 0;
+		return get(button - 1) > 0;
 	}
 	
 	public boolean buttonDownOnce(int button) {
-		return polled[button - 1] == 1;
+		return get(button - 1) == 1;
+	}
+
+	private int get(int index) {
+		return queue != null ? states.get(index) : polled[index];
 	}
 	
 	@Override
@@ -91,65 +240,131 @@ public class RelativeMouseInput implements MouseListener, MouseMotionListener, M
 	}
 
 	@Override
-	public synchronized void mouseEntered(MouseEvent e) {
+	public void mouseEntered(MouseEvent e) {
 		mouseMoved(e);
 	}
 
 	@Override
-	public synchronized void mouseExited(MouseEvent e) {
+	public void mouseExited(MouseEvent e) {
 		mouseMoved(e);
 	}
 
 	@Override
-	public synchronized void mousePressed(MouseEvent e) {
+	public void mousePressed(MouseEvent e) {
 		int button = e.getButton() - 1;
-		if (button >= 0 && button < mouse.length) {
-			mouse[button] = true;
+		if (queue != null) {
+			queue.offer(InputEventQueue.BUTTON_PRESSED, button, 0, 0, System.nanoTime());
+			return;
+		}
+		synchronized (this) {
+			if (button >= 0 && button < mouse.length) {
+				if (!mouse[button] && pressArrival == 0L) {
+					pressArrival = System.nanoTime();
+				}
+				mouse[button] = true;
+			}
 		}
 	}
 
 	@Override
-	public synchronized void mouseReleased(MouseEvent e) {
+	public void mouseReleased(MouseEvent e) {
 		int button = e.getButton() - 1;
-		if (button >= 0 && button < mouse.length) {
-			mouse[button] = false;
+		if (queue != null) {
+			queue.offer(InputEventQueue.BUTTON_RELEASED, button, 0, 0, System.nanoTime());
+			return;
+		}
+		synchronized (this) {
+			if (button >= 0 && button < mouse.length) {
+				mouse[button] = false;
+			}
 		}
 	}
 
 	@Override
-	public synchronized void mouseDragged(MouseEvent e) {
+	public void mouseDragged(MouseEvent e) {
 		mouseMoved(e);
 	}
 
 	@Override
-	public synchronized void mouseMoved(MouseEvent e) {
+	public void mouseMoved(MouseEvent e) {
+		int x = e.getX();
+		int y = e.getY();
+		if (warping) {
+			warping = false;
+			if (x == warpX && y == warpY) {
+				// The robot's own move, not user motion.
+				return;
+			}
+		}
+		int moveX = x - lastX;
+		int moveY = y - lastY;
+		lastX = x;
+		lastY = y;
 		if (isRelative()) {
-			Point p = e.getPoint();
-			Point center = getComponentCenter();
-			dx += p.x - center.x;
-			dy += p.y - center.y;
-			centerMouse();
+			if (moveX == 0 && moveY == 0) {
+				return;
+			}
+			if (queue != null) {
+				queue.offer(InputEventQueue.MOUSE_MOVED, 1, moveX, moveY, System.nanoTime());
+				return;
+			}
+			synchronized (this) {
+				dx += moveX;
+				dy += moveY;
+			}
 		} else {
-			currentPos = e.getPoint();
+			if (queue != null) {
+				queue.offer(InputEventQueue.MOUSE_MOVED, 0, x, y, System.nanoTime());
+				return;
+			}
+			synchronized (this) {
+				currentX = x;
+				currentY = y;
+			}
 		}
 	}
 
 	@Override
-	public synchronized void mouseWheelMoved(MouseWheelEvent e) {
-		notches += e.getWheelRotation();
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		if (queue != null) {
+			queue.offer(InputEventQueue.MOUSE_WHEEL, 0, e.getWheelRotation(), 0, System.nanoTime());
+			return;
+		}
+		synchronized (this) {
+			notches += e.getWheelRotation();
+		}
 	}
 	
-	private Point getComponentCenter() {
-		int w = component.getWidth();
-		int h = component.getHeight();
-		return new Point(w/2, h/2);
+	/**
+	 * Schedules one recenter on the event thread unless one is already
+	 * pending, so the Robot round trip happens at most once per poll no
+	 * matter how many motion events arrive.
+	 */
+	private void requestRecenter() {
+		if (recenterPending.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(recenter);
+		}
 	}
 
+	// Event thread only.
 	private void centerMouse() {
-		if (robot != null && component.isShowing()) {
-			Point center = getComponentCenter();
-			SwingUtilities.convertPointToScreen(center, component);
-			robot.mouseMove(center.x, center.y);
+		recenterPending.set(false);
+		if (!isRelative() || robot == null || !component.isShowing()) {
+			return;
+		}
+		int centerX = component.getWidth() / 2;
+		int centerY = component.getHeight() / 2;
+		if (lastX == centerX && lastY == centerY) {
+			return;
 		}
+		screenCenter.setLocation(centerX, centerY);
+		SwingUtilities.convertPointToScreen(screenCenter, component);
+		robot.mouseMove(screenCenter.x, screenCenter.y);
+		// Later events are measured from the center, see mouseMoved.
+		lastX = centerX;
+		lastY = centerY;
+		warpX = centerX;
+		warpY = centerY;
+		warping = true;
 	}
 }
@@ -0,0 +1,14 @@
+package javagames.util;
+
+/**
+ * Copy of everything a game needs to draw one frame, kept apart from the
+ * simulation state so that drawing does not have to see the simulation
+ * change underneath it. See SimpleFramework.createRenderSnapshot.
+ */
+public interface RenderSnapshot {
+    /**
+     * Copies the current simulation state into this snapshot. Called on the
+     * update thread after updateObjects.
+     */
+    void capture();
+}
@@ -0,0 +1,76 @@
+package javagames.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Samples JVM counters that matter for frame pacing: total GC count and
+ * time across all collectors, heap usage, and the bytes allocated by one
+ * thread, normally the game thread. sample() does not allocate, so it can
+ * be called every frame.
+ */
+public class RuntimeStats {
+    private final GarbageCollectorMXBean[] collectors;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long threadId;
+    private final Runtime runtime = Runtime.getRuntime();
+
+    private long gcCount;
+    private long gcTimeMillis;
+    private long heapUsed;
+    private long heapMax;
+    private long allocatedBytes = -1L;
+
+    public RuntimeStats(Thread thread) {
+        collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean)bean;
+        } else {
+            threadBean = null;
+        }
+        threadId = thread.getId();
+    }
+
+    public void sample() {
+        long count = 0L;
+        long time = 0L;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0L, collector.getCollectionCount());
+            time += Math.max(0L, collector.getCollectionTime());
+        }
+        gcCount = count;
+        gcTimeMillis = time;
+        // Runtime rather than MemoryMXBean, whose MemoryUsage is allocated
+        // on every call.
+        heapMax = runtime.maxMemory();
+        heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        allocatedBytes = threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : -1L;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public long getHeapMax() {
+        return heapMax;
+    }
+
+    /**
+     * Total bytes the thread has allocated so far, or -1 if the JVM does
+     * not support per-thread allocation counting.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,31 @@
+package javagames.util;
+
+/**
+ * Plain per-vertex loops; the default backend and the reference the
+ * vector backend is checked against.
+ */
+final class ScalarTransformKernel implements TransformKernel {
+
+    @Override
+    public void transform(float m00, float m01, float m10, float m11, float m20, float m21,
+            float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        int end = srcOffset + count * 2;
+        for (int s = srcOffset, d = dstOffset; s < end; s += 2, d += 2) {
+            float x = src[s];
+            float y = src[s + 1];
+            dst[d] = x * m00 + y * m10 + m20;
+            dst[d + 1] = x * m01 + y * m11 + m21;
+        }
+    }
+
+    @Override
+    public void transform(float m00, float m01, float m10, float m11, float m20, float m21,
+            float[] srcX, float[] srcY, float[] dstX, float[] dstY, int count) {
+        for (int i = 0; i < count; i++) {
+            float x = srcX[i];
+            float y = srcY[i];
+            dstX[i] = x * m00 + y * m10 + m20;
+            dstY[i] = x * m01 + y * m11 + m21;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package javagames.util;
+
+/**
+ * Immutable polygon in its local (model) frame, with everything that can
+ * be derived from the vertices computed once up front: packed vertices,
+ * axis-aligned bounds, bounding radius around the local origin, centroid,
+ * and the inverse edge slopes used by contains().
+ */
+public final class Shape2f {
+    private final float[] vertices;
+    private final int vertexCount;
+    // For edge i, running from vertex i - 1 to vertex i: dx / dy.
+    private final float[] edgeInvSlopes;
+
+    private final float minX;
+    private final float minY;
+    private final float maxX;
+    private final float maxY;
+    private final float radius;
+    private final float centroidX;
+    private final float centroidY;
+
+    public Shape2f(Vector2f[] polygon) {
+        this(VertexTransform.pack(polygon));
+    }
+
+    public Shape2f(float[] vertices) {
+        this.vertices = vertices.clone();
+        vertexCount = vertices.length / 2;
+        edgeInvSlopes = new float[vertexCount];
+
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        float radiusSqr = 0.0f;
+        float area = 0.0f;
+        float cx = 0.0f;
+        float cy = 0.0f;
+        float sumX = 0.0f;
+        float sumY = 0.0f;
+
+        float startX = vertices[vertexCount * 2 - 2];
+        float startY = vertices[vertexCount * 2 - 1];
+        for (int i = 0; i < vertexCount; i++) {
+            float x = vertices[i * 2];
+            float y = vertices[i * 2 + 1];
+            minX = Math.min(x, minX);
+            minY = Math.min(y, minY);
+            maxX = Math.max(x, maxX);
+            maxY = Math.max(y, maxY);
+            radiusSqr = Math.max(x * x + y * y, radiusSqr);
+            sumX += x;
+            sumY += y;
+
+            float dy = y - startY;
+            edgeInvSlopes[i] = dy != 0.0f ? (x - startX) / dy : 0.0f;
+
+            float cross = startX * y - x * startY;
+            area += cross;
+            cx += (startX + x) * cross;
+            cy += (startY + y) * cross;
+
+            startX = x;
+            startY = y;
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        radius = (float)Math.sqrt(radiusSqr);
+        if (area != 0.0f) {
+            centroidX = cx / (3.0f * area);
+            centroidY = cy / (3.0f * area);
+        } else {
+            centroidX = sumX / vertexCount;
+            centroidY = sumY / vertexCount;
+        }
+    }
+
+    /**
+     * Returns a copy scaled by (sx, sy), e.g. (-1, 1) to mirror it.
+     */
+    public Shape2f scale(float sx, float sy) {
+        float[] scaled = new float[vertices.length];
+        for (int i = 0; i < vertices.length; i += 2) {
+            scaled[i] = vertices[i] * sx;
+            scaled[i + 1] = vertices[i + 1] * sy;
+        }
+        return new Shape2f(scaled);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public float getX(int index) {
+        return vertices[index * 2];
+    }
+
+    public float getY(int index) {
+        return vertices[index * 2 + 1];
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Distance from the local origin to the farthest vertex. A circle of
+     * this radius around the position contains the shape at any rotation.
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    public float getCentroidX() {
+        return centroidX;
+    }
+
+    public float getCentroidY() {
+        return centroidY;
+    }
+
+    /**
+     * Writes the transformed vertices, packed as x0, y0, x1, y1, ..., to dst.
+     */
+    public void transform(Matrix3x3f mat, float[] dst) {
+        VertexTransform.transform(mat, vertices, dst, vertexCount);
+    }
+
+    public void transform(Affine2f a, float[] dst) {
+        VertexTransform.transform(a, vertices, dst, vertexCount);
+    }
+
+    /**
+     * Point in polygon test in the local frame.
+     */
+    public boolean contains(float px, float py) {
+        if (px < minX || px > maxX || py < minY || py > maxY) {
+            return false;
+        }
+        boolean inside = false;
+        float startX = vertices[vertexCount * 2 - 2];
+        float startY = vertices[vertexCount * 2 - 1];
+        boolean startAbove = startY >= py;
+        for (int i = 0; i < vertexCount; i++) {
+            float endX = vertices[i * 2];
+            float endY = vertices[i * 2 + 1];
+            boolean endAbove = endY >= py;
+            if (startAbove != endAbove) {
+                float x = startX + (py - startY) * edgeInvSlopes[i];
+                if (x >= px) {
+                    inside = !inside;
+                }
+            }
+            startAbove = endAbove;
+            startX = endX;
+            startY = endY;
+        }
+        return inside;
+    }
+}
@@ -4,11 +4,19 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class SimpleFramework extends JFrame implements Runnable {
+    // How long a pipeline side waits for the other before checking running.
+    private static final long EXCHANGE_TIMEOUT_MILLIS = 250L;
+
     private BufferStrategy bufferStrategy;
     private volatile boolean running;
     private Thread gameThread;
@@ -20,10 +28,42 @@ public class SimpleFramework extends JFrame implements Runnable {
     protected float appWorldWidth = 2.0f;
     protected float appWorldHeight = 2.0f;
     protected long appSleep = 10L;
+    // When positive, frames are paced to this rate with a FramePacer instead
+    // of sleeping appSleep milliseconds after each one.
+    protected float appTargetFps = 0.0f;
+    // While the window is minimized or unfocused the loop is paced to
+    // appIdleFps (zero keeps the normal rate) and simulation time is scaled
+    // by appIdleTimeScale: 1 keeps it running, 0 pauses it. Minimized
+    // windows are not rendered at all.
+    protected float appIdleFps = 10.0f;
+    protected float appIdleTimeScale = 1.0f;
+    private volatile boolean windowFocused = true;
+    private volatile boolean windowIconified;
+    // A frame whose work, not counting the wait for the next frame, takes
+    // longer than this many milliseconds dumps the last appHitchFrames
+    // frames to a file. Zero disables the recorder.
+    protected float appHitchBudgetMs = Integer.getInteger(HitchRecorder.BUDGET_PROPERTY, 0);
+    protected int appHitchFrames = 300;
+    // When positive, statistics are served on http://localhost:port/metrics.
+    protected int appMetricsPort = Integer.getInteger(MetricsEndpoint.PORT_PROPERTY, 0);
     protected Font appFont = new Font("Courier New", Font.PLAIN, 14);
     protected Color appFPSColor = Color.GREEN;
+    // Routes input through lock-free, timestamped event queues instead of
+    // synchronized listeners. See KeyboardInput(boolean).
+    protected boolean appQueuedInput = false;
+    // Toggles the performance overlay.
+    protected int appOverlayKey = KeyEvent.VK_F3;
 
     protected FrameRate frameRate;
+    protected HitchRecorder hitchRecorder;
+    private PerformanceOverlay overlay;
+    private MetricsEndpoint metrics;
+    private int frameTicks;
+    // Arrival time of the earliest input the frame being rendered consumed,
+    // or 0. See getPolledPressTime.
+    private long frameInputTime;
+    private final FramePacer framePacer = new FramePacer();
+    private final FrameProfiler profiler = new FrameProfiler();
 
     protected Canvas canvas;
     protected KeyboardInput keyboard;
@@ -33,6 +73,34 @@ public class SimpleFramework extends JFrame implements Runnable {
     protected Color appBorder = Color.LIGHT_GRAY;
     protected boolean appMaintainRatio = false;
 
+    // Fixed-step mode: input and updates run at appTicksPerSecond with a
+    // constant delta, and render receives how far the current time has
+    // advanced into the next tick.
+    protected boolean appFixedStep = false;
+    protected float appTicksPerSecond = 60.0f;
+    protected int appMaxCatchUpSteps = 5;
+    private long accumulator;
+    private int simulatedTicks;
+    private long simulatedInputTime;
+    // Counter values set by the update side. The render side hands them to
+    // the hitch recorder in endFrame; in pipelined mode they travel there
+    // in the PipelineFrame.
+    private final long[] simulatedCounters = new long[HitchRecorder.MAX_COUNTERS];
+    private final String[] counterNames = new String[HitchRecorder.MAX_COUNTERS];
+
+    // Pipelined mode: input and updates for frame N + 1 run on the game
+    // thread while frame N is drawn on a separate render thread. Needs a
+    // game that implements createRenderSnapshot.
+    protected boolean appPipelined = Boolean.getBoolean("javagames.pipelined");
+    private RenderSnapshot renderSnapshot;
+
+    // Rebuilt under viewportLock and published whole through the volatile
+    // field, so the game and render threads can read it without locking.
+    // A published Viewport is never modified.
+    private final Object viewportLock = new Object();
+    private volatile Viewport viewport;
+    private volatile boolean viewportDirty = true;
+
     protected void createAndShowGUI() {
         canvas = new Canvas();
         canvas.setBackground(appBackground);
@@ -55,12 +123,45 @@ public class SimpleFramework extends JFrame implements Runnable {
             pack();
         }
 
+        canvas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                invalidateViewport();
+            }
+        });
+
+        WindowAdapter idleListener = new WindowAdapter() {
+            @Override
+            public void windowGainedFocus(WindowEvent e) {
+                windowFocused = true;
+                framePacer.wakeUp();
+            }
+
+            @Override
+            public void windowLostFocus(WindowEvent e) {
+                windowFocused = false;
+            }
+
+            @Override
+            public void windowIconified(WindowEvent e) {
+                windowIconified = true;
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                windowIconified = false;
+                framePacer.wakeUp();
+            }
+        };
+        addWindowListener(idleListener);
+        addWindowFocusListener(idleListener);
+
         setTitle(appTitle);
 
-        keyboard = new KeyboardInput();
+        keyboard = new KeyboardInput(appQueuedInput);
         canvas.addKeyListener(keyboard);
 
-        mouse = new RelativeMouseInput(canvas);
+        mouse = new RelativeMouseInput(canvas, appQueuedInput);
         canvas.addMouseListener(mouse);
         canvas.addMouseMotionListener(mouse);
         canvas.addMouseWheelListener(mouse);
@@ -91,84 +192,458 @@ public class SimpleFramework extends JFrame implements Runnable {
        vy += (vh - newH) / 2;
        canvas.setLocation(vx, vy);
        canvas.setSize(newW, newH);
+       invalidateViewport();
+    }
+
+    /**
+     * Marks the cached viewport transforms as stale. They are rebuilt from
+     * the canvas size the next time one of them is requested.
+     */
+    protected void invalidateViewport() {
+        viewportDirty = true;
+    }
+
+    /**
+     * Returns the current viewport. Its transforms and version never
+     * change, so values read from one Viewport always belong together even
+     * if the canvas is resized meanwhile.
+     */
+    protected Viewport getViewport() {
+        return validateViewport();
     }
 
+    private Viewport validateViewport() {
+        if (viewportDirty) {
+            synchronized (viewportLock) {
+                if (viewportDirty) {
+                    viewportDirty = false;
+                    int version = viewport == null ? 1 : viewport.version + 1;
+                    viewport = new Viewport(appWorldWidth, appWorldHeight, canvas.getWidth(), canvas.getHeight(), version);
+                }
+            }
+        }
+        return viewport;
+    }
+
+    /**
+     * Returns the cached world to screen transform. The returned matrix is
+     * owned by the framework and must not be modified.
+     */
     protected Matrix3x3f getViewportTransform() {
-        return Utility.createViewPort(appWorldWidth, appWorldHeight, canvas.getWidth(), canvas.getHeight());
+        return validateViewport().transform;
     }
 
+    /**
+     * Returns the cached screen to world transform. The returned matrix is
+     * owned by the framework and must not be modified.
+     */
     protected Matrix3x3f getReverseViewportTransform() {
-        return Utility.createReverseViewport(appWorldWidth, appWorldHeight, canvas.getWidth(), canvas.getHeight());
+        return validateViewport().reverse;
     }
 
     protected Vector2f getWorldMousePosition() {
-        Matrix3x3f screenToWorld = getReverseViewportTransform();
-        Point mousePos = mouse.getPosition();
-        Vector2f screenPos = new Vector2f(mousePos.x, mousePos.y);
-        return screenToWorld.mul(screenPos);
+        Vector2f screenPos = new Vector2f(mouse.getX(), mouse.getY());
+        return validateViewport().screenToWorld.transformPoint(screenPos, screenPos);
     }
 
+    /**
+     * The relative mouse motion read by the last poll, in world units.
+     */
     protected Vector2f getRelativeWorldMousePosition() {
-        float sx = appWorldWidth / (canvas.getWidth() - 1);
-        float sy = appWorldHeight / (canvas.getHeight() - 1);
-        Matrix3x3f viewPort = Matrix3x3f.scale(sx, -sy);
-        Point p = mouse.getPosition();
-        return viewPort.mul(new Vector2f(p.x, p.y));
+        Vector2f motion = new Vector2f(mouse.getX(), mouse.getY());
+        return validateViewport().screenToWorld.transformVector(motion, motion);
     }
 
     @Override
     public void run() {
         running = true;
         initialize();
-        long curTime = System.nanoTime();
-        long lastTime = curTime;
-        double nsPerFrame;
-        while (running) {
-            curTime = System.nanoTime();
-            nsPerFrame = curTime - lastTime;
-            gameLoop((float)(nsPerFrame / 1.0E9));
-            lastTime = curTime;
+        renderSnapshot = createRenderSnapshot();
+        if (appPipelined && renderSnapshot != null) {
+            pipelinedLoop();
+        } else {
+            if (appPipelined) {
+                System.err.println("Pipelined mode needs createRenderSnapshot(), running serially");
+            }
+            gameLoop();
         }
         terminate();
+        metrics.stop();
     }
 
     protected void initialize() {
         frameRate = new FrameRate();
         frameRate.initialize();
+        hitchRecorder = new HitchRecorder(appHitchFrames, (long)(appHitchBudgetMs * 1.0E6));
+        overlay = new PerformanceOverlay();
+        metrics = new MetricsEndpoint();
+        try {
+            metrics.start(appMetricsPort);
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint not started: " + e);
+        }
+    }
+
+    /**
+     * Registers a per-frame value, such as an entity count, with the hitch
+     * recorder, the metrics endpoint and the frame phase events. Returns the
+     * slot to pass to setCounter.
+     */
+    protected int addCounter(String name) {
+        metrics.addGauge(name);
+        int slot = hitchRecorder.addCounter(name);
+        if (slot >= 0) {
+            counterNames[slot] = name;
+        }
+        return slot;
+    }
+
+    protected void setCounter(int slot, long value) {
+        if (slot >= 0) {
+            simulatedCounters[slot] = value;
+        }
+        metrics.setGauge(slot, value);
+    }
+
+    private void gameLoop() {
+        long lastTime = System.nanoTime();
+        while (running) {
+            long curTime = System.nanoTime();
+            profiler.beginFrame();
+            float alpha = simulate(profiler, curTime - lastTime, renderSnapshot);
+            lastTime = curTime;
+            frameTicks = simulatedTicks;
+            frameInputTime = simulatedInputTime;
+            if (!windowIconified) {
+                renderFrame(alpha);
+            }
+            waitForNextFrame();
+            endFrame(simulatedCounters);
+        }
+    }
+
+    /**
+     * The viewport transforms for one canvas size. Immutable once
+     * published; the matrices must not be modified.
+     */
+    protected static final class Viewport {
+        final Matrix3x3f transform;
+        final Matrix3x3f reverse;
+        // Same mapping as reverse, used for picking.
+        final Affine2f screenToWorld;
+        final int version;
+
+        Viewport(float worldWidth, float worldHeight, float w, float h, int version) {
+            transform = Utility.createViewPort(worldWidth, worldHeight, w, h);
+            reverse = Utility.createReverseViewport(worldWidth, worldHeight, w, h);
+            screenToWorld = Utility.createReverseViewport(worldWidth, worldHeight, w, h, new Affine2f());
+            this.version = version;
+        }
+
+        public Matrix3x3f getTransform() {
+            return transform;
+        }
+
+        public Matrix3x3f getReverseTransform() {
+            return reverse;
+        }
+
+        /**
+         * Incremented every time the viewport is rebuilt. Subclasses can
+         * compare it against a stored value to decide when data derived from
+         * the viewport, such as projected geometry, has to be recomputed.
+         */
+        public int getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * One side of the pipeline's double buffer: a render snapshot plus the
+     * update timings and counters of the frame it was captured in.
+     */
+    private static class PipelineFrame {
+        final RenderSnapshot snapshot;
+        final long[] counters = new long[HitchRecorder.MAX_COUNTERS];
+        float alpha;
+        int ticks;
+        long inputTime;
+        long inputNanos;
+        long updateNanos;
+
+        PipelineFrame(RenderSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * Simulates on this thread and renders on a second one. Each side owns
+     * one PipelineFrame; when both are done they swap through an Exchanger,
+     * so the render thread draws the snapshot just captured while this
+     * thread simulates and captures into the one just drawn. Neither side
+     * ever sees a snapshot the other is using. Everything else the render
+     * side needs from the update side travels in the PipelineFrame too,
+     * except the overlay toggle and the viewport, which are published
+     * through volatile fields.
+     *
+     * If either thread fails it clears running, and the other one stops
+     * at its next exchange.
+     */
+    private void pipelinedLoop() {
+        final Exchanger<PipelineFrame> exchanger = new Exchanger<>();
+        final PipelineFrame drawn = new PipelineFrame(createRenderSnapshot());
+        Thread renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                renderLoop(exchanger, drawn);
+            }
+        }, "Render");
+        renderThread.start();
+
+        // Only INPUT and UPDATE are used; the render thread keeps the
+        // frame profile.
+        FrameProfiler updateProfiler = new FrameProfiler();
+        PipelineFrame frame = new PipelineFrame(renderSnapshot);
+        long lastTime = System.nanoTime();
+        try {
+            while (frame != null) {
+                long curTime = System.nanoTime();
+                updateProfiler.beginFrame();
+                frame.alpha = simulate(updateProfiler, curTime - lastTime, frame.snapshot);
+                updateProfiler.endFrame(simulatedTicks, counterNames, simulatedCounters);
+                lastTime = curTime;
+                frame.ticks = simulatedTicks;
+                frame.inputTime = simulatedInputTime;
+                frame.inputNanos = updateProfiler.getLastNanos(FrameProfiler.Phase.INPUT);
+                frame.updateNanos = updateProfiler.getLastNanos(FrameProfiler.Phase.UPDATE);
+                System.arraycopy(simulatedCounters, 0, frame.counters, 0, simulatedCounters.length);
+                frame = exchange(exchanger, frame);
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } finally {
+            running = false;
+            renderThread.interrupt();
+            try {
+                renderThread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Runs until running is cleared or it is interrupted by pipelinedLoop.
+     * Time spent waiting for the update thread is charged to WAIT.
+     */
+    private void renderLoop(Exchanger<PipelineFrame> exchanger, PipelineFrame frame) {
+        try {
+            while (true) {
+                profiler.beginFrame();
+                frame = exchange(exchanger, frame);
+                if (frame == null) {
+                    break;
+                }
+                profiler.end(FrameProfiler.Phase.WAIT);
+                profiler.add(FrameProfiler.Phase.INPUT, frame.inputNanos);
+                profiler.add(FrameProfiler.Phase.UPDATE, frame.updateNanos);
+                frameTicks = frame.ticks;
+                frameInputTime = frame.inputTime;
+                renderSnapshot = frame.snapshot;
+                if (!windowIconified) {
+                    renderFrame(frame.alpha);
+                }
+                waitForNextFrame();
+                endFrame(frame.counters);
+            }
+        } catch (InterruptedException e) {
+            // Pipeline shut down.
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            // Also stops the update thread if rendering failed.
+            running = false;
+        }
+    }
+
+    /**
+     * Swaps frames with the other side of the pipeline. Waits in short
+     * slices so that a side whose partner has died notices running being
+     * cleared instead of blocking forever. Returns null once it is.
+     */
+    private PipelineFrame exchange(Exchanger<PipelineFrame> exchanger, PipelineFrame frame)
+            throws InterruptedException {
+        while (running) {
+            try {
+                return exchanger.exchange(frame, EXCHANGE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check running again.
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs input and updates for one frame, charging them to INPUT and
+     * UPDATE on the given profiler, then captures the render snapshot, if
+     * any. Returns the alpha to render with and stores the number of ticks
+     * run in simulatedTicks and the arrival time of the earliest input they
+     * consumed in simulatedInputTime.
+     *
+     * In fixed-step mode it runs as many fixed ticks as the elapsed time
+     * covers, at most appMaxCatchUpSteps. Time beyond that is dropped so a
+     * long stall does not cause a burst of catch-up work, and the
+     * simulation slows down instead. While idle the limit is raised to
+     * cover a whole frame at appIdleFps, so the slower frame rate does not
+     * slow the simulation down.
+     */
+    private float simulate(FrameProfiler timer, long elapsedNanos, RenderSnapshot snapshot) {
+        if (isIdle()) {
+            elapsedNanos = (long)(elapsedNanos * appIdleTimeScale);
+        }
+        simulatedInputTime = 0L;
+        float alpha = 1.0f;
+        if (appFixedStep) {
+            long tickNanos = (long)(1.0E9 / appTicksPerSecond);
+            float tickSeconds = (float)(tickNanos / 1.0E9);
+            accumulator += elapsedNanos;
+            int maxSteps = appMaxCatchUpSteps;
+            if (isIdle() && appIdleFps > 0.0f) {
+                maxSteps = Math.max(maxSteps, (int)Math.ceil(appTicksPerSecond / appIdleFps) + 1);
+            }
+            int steps = 0;
+            while (accumulator >= tickNanos && steps < maxSteps) {
+                processInput(tickSeconds);
+                pollInputTime();
+                timer.end(FrameProfiler.Phase.INPUT);
+                updateObjects(tickSeconds);
+                timer.end(FrameProfiler.Phase.UPDATE);
+                accumulator -= tickNanos;
+                steps++;
+            }
+            if (accumulator >= tickNanos) {
+                accumulator %= tickNanos;
+            }
+            simulatedTicks = steps;
+            alpha = (float)accumulator / tickNanos;
+        } else {
+            float delta = (float)(elapsedNanos / 1.0E9);
+            processInput(delta);
+            pollInputTime();
+            timer.end(FrameProfiler.Phase.INPUT);
+            updateObjects(delta);
+            timer.end(FrameProfiler.Phase.UPDATE);
+            simulatedTicks = 1;
+        }
+        if (snapshot != null) {
+            snapshot.capture();
+            timer.end(FrameProfiler.Phase.UPDATE);
+        }
+        return alpha;
+    }
+
+    private void pollInputTime() {
+        simulatedInputTime = earliest(simulatedInputTime, keyboard.getPolledPressTime());
+        simulatedInputTime = earliest(simulatedInputTime, mouse.getPolledPressTime());
     }
 
-    private void gameLoop(float delta) {
-        processInput(delta);
-        updateObjects(delta);
-        renderFrame();
-        sleep(appSleep);
+    private static long earliest(long a, long b) {
+        if (a == 0L) {
+            return b;
+        }
+        return b != 0L && b - a < 0L ? b : a;
+    }
+
+    private void endFrame(long[] counters) {
+        profiler.end(FrameProfiler.Phase.WAIT);
+        profiler.endFrame(frameTicks, counterNames, counters);
+        overlay.update(profiler);
+        // Idle frames are throttled on purpose and would only skew the
+        // hitch budget and the published percentiles, but they still count
+        // towards the frame and tick totals and rates.
+        boolean idle = isIdle();
+        metrics.endFrame(profiler, frameTicks, !idle);
+        if (idle) {
+            return;
+        }
+        for (int slot = 0; slot < counters.length; slot++) {
+            hitchRecorder.setCounter(slot, counters[slot]);
+        }
+        hitchRecorder.endFrame(profiler);
     }
 
     protected void processInput(float delta) {
         keyboard.poll();
         mouse.poll();
+        if (keyboard.keyDownOnce(appOverlayKey)) {
+            overlay.toggle();
+        }
     }
 
     protected void updateObjects(float delta) {
 
     }
 
-    private void renderFrame() {
+    /**
+     * Games that draw from a snapshot instead of their live objects return
+     * a new, empty snapshot here. It is called once, or twice in pipelined
+     * mode to make a double buffer. After every update the framework calls
+     * capture on one of them and passes it to the render thread, where
+     * getRenderSnapshot returns it. Returns null by default, which makes
+     * render draw the live objects and rules out pipelined mode.
+     */
+    protected RenderSnapshot createRenderSnapshot() {
+        return null;
+    }
+
+    /**
+     * The snapshot being drawn. Only valid inside render.
+     */
+    protected RenderSnapshot getRenderSnapshot() {
+        return renderSnapshot;
+    }
+
+    /**
+     * Renders and presents one frame. Drawing is charged to the RENDER phase
+     * and bufferStrategy.show() to PRESENT, so a slow present shows up on its
+     * own rather than inflating the render time. Once show returns, the time
+     * since the frame's input arrived is recorded as its input latency.
+     */
+    private void renderFrame(float alpha) {
         do {
             do {
                 Graphics g = null;
                 try {
                     g = bufferStrategy.getDrawGraphics();
                     g.clearRect(0,0, getWidth(), getHeight());
-                    render(g);
+                    render(g, alpha);
+                    if (overlay.isVisible()) {
+                        overlay.draw(g, canvas.getWidth() - overlay.getWidth() - 10, 10);
+                    }
                 } finally {
                     if (g != null) {
                         g.dispose();
                     }
                 }
             } while (bufferStrategy.contentsRestored());
+            profiler.end(FrameProfiler.Phase.RENDER);
             bufferStrategy.show();
+            profiler.end(FrameProfiler.Phase.PRESENT);
         } while (bufferStrategy.contentsLost());
+        if (frameInputTime != 0L) {
+            profiler.recordInputLatency(System.nanoTime() - frameInputTime);
+        }
+    }
+
+    /**
+     * Called once per frame. In fixed-step mode alpha is the fraction of a
+     * tick, in [0, 1), that has elapsed since the last update and can be used
+     * to interpolate between the previous and current state. Otherwise it is
+     * always 1. The default implementation ignores alpha and calls
+     * render(Graphics).
+     */
+    protected void render(Graphics g, float alpha) {
+        render(g);
     }
 
     protected void render(Graphics g) {
@@ -178,11 +653,44 @@ public class SimpleFramework extends JFrame implements Runnable {
         g.drawString(frameRate.getFrameRate(), 20, 20);
     }
 
+    /**
+     * True while the window is minimized or does not have focus.
+     */
+    protected boolean isIdle() {
+        return windowIconified || !windowFocused;
+    }
+
+    private void waitForNextFrame() {
+        float fps = appTargetFps;
+        if (isIdle() && appIdleFps > 0.0f && (fps <= 0.0f || appIdleFps < fps)) {
+            fps = appIdleFps;
+        }
+        if (fps > 0.0f) {
+            framePacer.setTargetFps(fps);
+            framePacer.waitForNextFrame();
+        } else {
+            sleep(appSleep);
+        }
+    }
+
+    protected FramePacer getFramePacer() {
+        return framePacer;
+    }
+
+    /**
+     * Per-phase timings and input latency of the game loop. Only the thread
+     * that renders may record into it or read its histograms.
+     */
+    protected FrameProfiler getProfiler() {
+        return profiler;
+    }
+
     private void sleep(long sleep) {
         try {
             Thread.sleep(sleep);
         } catch (InterruptedException e) {
-            // Do nothing.
+            // Keep the flag so the pipelined render thread still stops.
+            Thread.currentThread().interrupt();
         }
     }
 
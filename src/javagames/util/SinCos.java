@@ -0,0 +1,37 @@
+package javagames.util;
+
+/**
+ * Sine and cosine of an angle, recomputed only when the angle changes.
+ */
+public class SinCos {
+    private float angle;
+    private float sin;
+    private float cos;
+
+    public SinCos() {
+        angle = 0.0f;
+        sin = 0.0f;
+        cos = 1.0f;
+    }
+
+    public SinCos set(float angle) {
+        if (angle != this.angle) {
+            this.angle = angle;
+            sin = (float)Math.sin(angle);
+            cos = (float)Math.cos(angle);
+        }
+        return this;
+    }
+
+    public float getAngle() {
+        return angle;
+    }
+
+    public float sin() {
+        return sin;
+    }
+
+    public float cos() {
+        return cos;
+    }
+}
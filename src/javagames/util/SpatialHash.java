@@ -0,0 +1,135 @@
+package javagames.util;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the world whose cell indices wrap around the edges, so
+ * a body near one edge is also found from the other side without storing
+ * copies. Cells are at least as large as the biggest body, so each body
+ * lands in at most four of them, and there are at most about four cells
+ * per body. build lays the cells out with a counting sort into one flat
+ * array, so rebuilding every frame does not allocate.
+ */
+public class SpatialHash extends AbstractBroadPhase {
+    private static final int MAX_CELLS_PER_AXIS = 1024;
+
+    private int columns;
+    private int rows;
+    private float cellWidth;
+    private float cellHeight;
+    // Bodies of cell c are cellBodies[cellStart[c]] to cellBodies[cellStart[c + 1] - 1].
+    private int[] cellStart = new int[2];
+    private int[] cellBodies = new int[64];
+
+    public SpatialHash(float worldWidth, float worldHeight) {
+        super(worldWidth, worldHeight);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.HASH;
+    }
+
+    @Override
+    public void build() {
+        // More cells than about four per body only costs memory and time
+        // spent clearing them.
+        int limit = Math.min(MAX_CELLS_PER_AXIS, (int)Math.ceil(2.0 * Math.sqrt(count)));
+        float cellSize = maxRadius * 2.0f;
+        columns = Math.max(1, Math.min(limit, (int)(worldWidth / cellSize)));
+        rows = Math.max(1, Math.min(limit, (int)(worldHeight / cellSize)));
+        // Cells divide the world exactly, so wrapped indices line up.
+        cellWidth = worldWidth / columns;
+        cellHeight = worldHeight / rows;
+
+        int cells = columns * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+
+        // Count the bodies per cell, shifted by one so the prefix sum below
+        // turns the counts into start offsets.
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            int cx0 = column(xs[i] - radii[i]);
+            int cx1 = lastColumn(cx0, xs[i] + radii[i]);
+            int cy0 = row(ys[i] - radii[i]);
+            int cy1 = lastRow(cy0, ys[i] + radii[i]);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    cellStart[cell(cx, cy) + 1]++;
+                    total++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        if (cellBodies.length < total) {
+            cellBodies = new int[Math.max(total, cellBodies.length * 2)];
+        }
+
+        // Fill each cell, using cellStart[c] as its write position. That
+        // leaves cellStart[c] at the start of cell c + 1, so shift back.
+        for (int i = 0; i < count; i++) {
+            int cx0 = column(xs[i] - radii[i]);
+            int cx1 = lastColumn(cx0, xs[i] + radii[i]);
+            int cy0 = row(ys[i] - radii[i]);
+            int cy1 = lastRow(cy0, ys[i] + radii[i]);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    cellBodies[cellStart[cell(cx, cy)]++] = i;
+                }
+            }
+        }
+        for (int c = cells; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    @Override
+    public int query(float x, float y, float radius) {
+        beginQuery();
+        int cx0 = column(x - radius);
+        int cx1 = lastColumn(cx0, x + radius);
+        int cy0 = row(y - radius);
+        int cy1 = lastRow(cy0, y + radius);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int c = cell(cx, cy);
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    offer(cellBodies[k], x, y, radius);
+                }
+            }
+        }
+        return endQuery();
+    }
+
+    /**
+     * Unwrapped column of x; cell() wraps it.
+     */
+    private int column(float x) {
+        return (int)Math.floor((x + halfWidth) / cellWidth);
+    }
+
+    /**
+     * Column of x, at most one full turn past first.
+     */
+    private int lastColumn(int first, float x) {
+        return Math.min(column(x), first + columns - 1);
+    }
+
+    private int row(float y) {
+        return (int)Math.floor((y + halfHeight) / cellHeight);
+    }
+
+    private int lastRow(int first, float y) {
+        return Math.min(row(y), first + rows - 1);
+    }
+
+    private int cell(int column, int row) {
+        return Math.floorMod(row, rows) * columns + Math.floorMod(column, columns);
+    }
+}
@@ -0,0 +1,141 @@
+package javagames.util;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the bodies' squares sorted by their left edge. A query
+ * binary-searches for the first square that could reach it, which starts
+ * at most one body diameter to its left, and sweeps right until the
+ * squares start past its right edge, pruning on y as it goes. Squares
+ * sticking out of the world are also stored shifted back inside, and
+ * queries are repeated the same way, so wrapped contacts are found.
+ *
+ * Sorting packs each left edge, made sortable as an int, together with the
+ * entry index into a long, so Arrays.sort works on primitives.
+ */
+public class SweepAndPrune extends AbstractBroadPhase {
+    private int entryCount;
+    private int[] entryBodies = new int[64];
+    private float[] entryMinX = new float[64];
+    private float[] entryMaxX = new float[64];
+    private float[] entryMinY = new float[64];
+    private float[] entryMaxY = new float[64];
+    private long[] keys = new long[64];
+
+    // Sorted copies of the entries, so the sweep reads memory in order.
+    private int[] sortedBodies = new int[64];
+    private float[] sortedMinX = new float[64];
+    private float[] sortedMaxX = new float[64];
+    private float[] sortedMinY = new float[64];
+    private float[] sortedMaxY = new float[64];
+
+    private final float[] offsets = new float[18];
+
+    public SweepAndPrune(float worldWidth, float worldHeight) {
+        super(worldWidth, worldHeight);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.SWEEP;
+    }
+
+    @Override
+    public void build() {
+        entryCount = 0;
+        for (int i = 0; i < count; i++) {
+            float r = radii[i];
+            float minX = xs[i] - r;
+            float minY = ys[i] - r;
+            float maxX = xs[i] + r;
+            float maxY = ys[i] + r;
+            int copies = getWrapOffsets(minX, minY, maxX, maxY, offsets);
+            for (int c = 0; c < copies; c++) {
+                float dx = offsets[c * 2];
+                float dy = offsets[c * 2 + 1];
+                addEntry(i, minX + dx, minY + dy, maxX + dx, maxY + dy);
+            }
+        }
+
+        for (int e = 0; e < entryCount; e++) {
+            keys[e] = (long)sortableBits(entryMinX[e]) << 32 | e;
+        }
+        Arrays.sort(keys, 0, entryCount);
+        for (int s = 0; s < entryCount; s++) {
+            int e = (int)keys[s];
+            sortedBodies[s] = entryBodies[e];
+            sortedMinX[s] = entryMinX[e];
+            sortedMaxX[s] = entryMaxX[e];
+            sortedMinY[s] = entryMinY[e];
+            sortedMaxY[s] = entryMaxY[e];
+        }
+    }
+
+    private void addEntry(int body, float minX, float minY, float maxX, float maxY) {
+        if (entryCount == entryBodies.length) {
+            int capacity = entryCount * 2;
+            entryBodies = Arrays.copyOf(entryBodies, capacity);
+            entryMinX = Arrays.copyOf(entryMinX, capacity);
+            entryMaxX = Arrays.copyOf(entryMaxX, capacity);
+            entryMinY = Arrays.copyOf(entryMinY, capacity);
+            entryMaxY = Arrays.copyOf(entryMaxY, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            sortedBodies = Arrays.copyOf(sortedBodies, capacity);
+            sortedMinX = Arrays.copyOf(sortedMinX, capacity);
+            sortedMaxX = Arrays.copyOf(sortedMaxX, capacity);
+            sortedMinY = Arrays.copyOf(sortedMinY, capacity);
+            sortedMaxY = Arrays.copyOf(sortedMaxY, capacity);
+        }
+        entryBodies[entryCount] = body;
+        entryMinX[entryCount] = minX;
+        entryMaxX[entryCount] = maxX;
+        entryMinY[entryCount] = minY;
+        entryMaxY[entryCount] = maxY;
+        entryCount++;
+    }
+
+    /**
+     * Float bits reordered so signed int comparison matches float order.
+     */
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ (bits >> 31 & 0x7fffffff);
+    }
+
+    @Override
+    public int query(float x, float y, float radius) {
+        beginQuery();
+        int copies = getWrapOffsets(x - radius, y - radius, x + radius, y + radius, offsets);
+        for (int c = 0; c < copies; c++) {
+            float qx = x + offsets[c * 2];
+            float qy = y + offsets[c * 2 + 1];
+            sweep(qx - radius, qy - radius, qx + radius, qy + radius, x, y, radius);
+        }
+        return endQuery();
+    }
+
+    private void sweep(float minX, float minY, float maxX, float maxY, float x, float y, float radius) {
+        for (int s = lowerBound(minX - 2.0f * maxRadius); s < entryCount && sortedMinX[s] <= maxX; s++) {
+            if (sortedMaxX[s] >= minX && sortedMinY[s] <= maxY && sortedMaxY[s] >= minY) {
+                offer(sortedBodies[s], x, y, radius);
+            }
+        }
+    }
+
+    /**
+     * First sorted entry whose left edge is at or past x.
+     */
+    private int lowerBound(float x) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedMinX[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
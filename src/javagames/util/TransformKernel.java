@@ -0,0 +1,14 @@
+package javagames.util;
+
+/**
+ * Inner loops behind VertexTransform. The matrix is passed as its six
+ * affine entries in the row-vector layout of Matrix3x3f and Affine2f.
+ */
+interface TransformKernel {
+
+    void transform(float m00, float m01, float m10, float m11, float m20, float m21,
+            float[] src, int srcOffset, float[] dst, int dstOffset, int count);
+
+    void transform(float m00, float m01, float m10, float m11, float m20, float m21,
+            float[] srcX, float[] srcY, float[] dstX, float[] dstY, int count);
+}
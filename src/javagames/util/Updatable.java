@@ -0,0 +1,9 @@
+package javagames.util;
+
+/**
+ * Something that advances by a time step, such as a game entity. See
+ * UpdateScheduler.
+ */
+public interface Updatable {
+    void update(float delta);
+}
@@ -0,0 +1,194 @@
+package javagames.util;
+
+import java.util.ArrayList;
+
+/**
+ * Spreads entity updates across frames. Each registered entity has an
+ * update interval in frames, taken from an IntervalPolicy after every
+ * update so it can change, e.g. with distance from the player. Interval 1
+ * means every frame; those updates always run. Entities with a longer
+ * interval become due when that many frames have passed and are updated
+ * while the per-frame time budget lasts. Due entities that do not fit are
+ * deferred to the next frame, where they are served first. When an entity
+ * is finally updated it receives all the time it missed, so it ends up in
+ * the right place, just with coarser steps.
+ *
+ * Frames that go over budget anyway, because the every-frame updates alone
+ * are too expensive, are counted as overruns. A budget of zero or less
+ * disables the time limit, which keeps the order of updates independent
+ * of timing.
+ */
+public class UpdateScheduler<T extends Updatable> {
+
+    public interface IntervalPolicy<T> {
+        /**
+         * Frames between updates of target; values below 1 mean 1.
+         */
+        int getInterval(T target);
+    }
+
+    private static final class Entry<T> {
+        final T target;
+        int interval;
+        int waiting;
+        float pending;
+        boolean removed;
+
+        Entry(T target) {
+            this.target = target;
+        }
+    }
+
+    private final ArrayList<Entry<T>> entries = new ArrayList<>();
+    private final IntervalPolicy<T> policy;
+    private long budgetNanos;
+    private int cursor;
+    private int removedCount;
+
+    private int lastUpdated;
+    private int lastDeferred;
+    private long lastElapsedNanos;
+    private long overrunCount;
+
+    public UpdateScheduler(long budgetNanos, IntervalPolicy<T> policy) {
+        this.budgetNanos = budgetNanos;
+        this.policy = policy;
+    }
+
+    public void setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public void register(T target) {
+        Entry<T> entry = new Entry<>(target);
+        entry.interval = intervalOf(target);
+        // Stagger entities with the same interval so they do not all come
+        // due on the same frame.
+        entry.waiting = entries.size() % entry.interval;
+        entries.add(entry);
+    }
+
+    public void unregister(T target) {
+        for (Entry<T> entry : entries) {
+            if (entry.target == target && !entry.removed) {
+                entry.removed = true;
+                removedCount++;
+                return;
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        cursor = 0;
+        removedCount = 0;
+    }
+
+    public int size() {
+        return entries.size() - removedCount;
+    }
+
+    /**
+     * Advances every entity's clock by delta and runs the updates that are
+     * due and fit in the budget.
+     */
+    public void update(float delta) {
+        long start = System.nanoTime();
+        if (removedCount > 0) {
+            compact();
+        }
+        int count = entries.size();
+        int updated = 0;
+        int deferred = 0;
+        int nextCursor = -1;
+        for (int n = 0; n < count; n++) {
+            int index = (cursor + n) % count;
+            Entry<T> entry = entries.get(index);
+            entry.pending += delta;
+            entry.waiting++;
+            if (entry.interval > 1) {
+                if (entry.waiting < entry.interval) {
+                    continue;
+                }
+                if (budgetNanos > 0L && System.nanoTime() - start >= budgetNanos) {
+                    if (nextCursor < 0) {
+                        nextCursor = index;
+                    }
+                    deferred++;
+                    continue;
+                }
+            }
+            run(entry);
+            updated++;
+        }
+        if (nextCursor >= 0) {
+            cursor = nextCursor;
+        }
+
+        lastUpdated = updated;
+        lastDeferred = deferred;
+        lastElapsedNanos = System.nanoTime() - start;
+        if (budgetNanos > 0L && lastElapsedNanos > budgetNanos) {
+            overrunCount++;
+        }
+    }
+
+    private void run(Entry<T> entry) {
+        entry.target.update(entry.pending);
+        entry.pending = 0.0f;
+        entry.waiting = 0;
+        entry.interval = intervalOf(entry.target);
+    }
+
+    private int intervalOf(T target) {
+        return policy != null ? Math.max(1, policy.getInterval(target)) : 1;
+    }
+
+    private void compact() {
+        int write = 0;
+        int newCursor = 0;
+        for (int read = 0; read < entries.size(); read++) {
+            if (read == cursor) {
+                newCursor = write;
+            }
+            Entry<T> entry = entries.get(read);
+            if (!entry.removed) {
+                entries.set(write++, entry);
+            }
+        }
+        for (int i = entries.size() - 1; i >= write; i--) {
+            entries.remove(i);
+        }
+        removedCount = 0;
+        cursor = write > 0 ? newCursor % write : 0;
+    }
+
+    /**
+     * Number of updates run in the last frame.
+     */
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Number of due updates pushed to the next frame for lack of budget.
+     */
+    public int getLastDeferred() {
+        return lastDeferred;
+    }
+
+    public long getLastElapsedNanos() {
+        return lastElapsedNanos;
+    }
+
+    /**
+     * Frames so far that took longer than the budget.
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+}
@@ -5,26 +5,70 @@ import java.util.*;
 import java.util.List;
 
 public class Utility {
+    // Scratch buffers for the packed polygon helpers; all drawing happens
+    // on one thread.
+    private static float[] projected = new float[32];
+    private static int[] xPoints = new int[16];
+    private static int[] yPoints = new int[16];
+
     public static Matrix3x3f createViewPort(float worldWidth, float worldHeight, float screenWidth, float screenHeight) {
-        float scaleX = (screenWidth - 1) / worldWidth;
-        float scaleY = (screenHeight - 1) / worldHeight;
-        float translateX = (screenWidth - 1) / 2.0f;
-        float translateY = (screenHeight - 1) / 2.0f;
+        return createViewPort(worldWidth, worldHeight, screenWidth, screenHeight, new Matrix3x3f());
+    }
 
-        Matrix3x3f viewport = Matrix3x3f.scale(scaleX, -scaleY);
-        viewport = viewport.mul(Matrix3x3f.translate(translateX, translateY));
-        return viewport;
+    public static Matrix3x3f createViewPort(float worldWidth, float worldHeight, float screenWidth, float screenHeight, Matrix3x3f dest) {
+        float scaleX = span(screenWidth) / worldWidth;
+        float scaleY = span(screenHeight) / worldHeight;
+        float translateX = span(screenWidth) / 2.0f;
+        float translateY = span(screenHeight) / 2.0f;
+
+        // scale(scaleX, -scaleY) * translate(translateX, translateY)
+        return dest.set(
+                scaleX, 0.0f, 0.0f,
+                0.0f, -scaleY, 0.0f,
+                translateX, translateY, 1.0f);
+    }
+
+    public static Affine2f createViewPort(float worldWidth, float worldHeight, float screenWidth, float screenHeight, Affine2f dest) {
+        float scaleX = span(screenWidth) / worldWidth;
+        float scaleY = span(screenHeight) / worldHeight;
+        float translateX = span(screenWidth) / 2.0f;
+        float translateY = span(screenHeight) / 2.0f;
+        return dest.set(scaleX, 0.0f, 0.0f, -scaleY, translateX, translateY);
     }
 
     public static Matrix3x3f createReverseViewport(float worldWidth, float worldHeight, float screenWidth, float screenHeight) {
-        float scaleX = worldWidth /(screenWidth - 1);
-        float scaleY = worldHeight / (screenHeight - 1);
-        float translateX = (screenWidth - 1) / 2.0f;
-        float translateY = (screenHeight - 1) / 2.0f;
+        return createReverseViewport(worldWidth, worldHeight, screenWidth, screenHeight, new Matrix3x3f());
+    }
+
+    public static Matrix3x3f createReverseViewport(float worldWidth, float worldHeight, float screenWidth, float screenHeight, Matrix3x3f dest) {
+        float scaleX = worldWidth / span(screenWidth);
+        float scaleY = worldHeight / span(screenHeight);
+        float translateX = span(screenWidth) / 2.0f;
+        float translateY = span(screenHeight) / 2.0f;
 
-        Matrix3x3f viewport = Matrix3x3f.translate(-translateX, -translateY);
-        viewport = viewport.mul(Matrix3x3f.scale(scaleX, -scaleY));
-        return viewport;
+        // translate(-translateX, -translateY) * scale(scaleX, -scaleY)
+        return dest.set(
+                scaleX, 0.0f, 0.0f,
+                0.0f, -scaleY, 0.0f,
+                -translateX * scaleX, translateY * scaleY, 1.0f);
+    }
+
+    public static Affine2f createReverseViewport(float worldWidth, float worldHeight, float screenWidth, float screenHeight, Affine2f dest) {
+        float scaleX = worldWidth / span(screenWidth);
+        float scaleY = worldHeight / span(screenHeight);
+        float translateX = span(screenWidth) / 2.0f;
+        float translateY = span(screenHeight) / 2.0f;
+        return dest.set(scaleX, 0.0f, 0.0f, -scaleY, -translateX * scaleX, translateY * scaleY);
+    }
+
+    /**
+     * Distance in pixels between the first and last pixel of a screen
+     * extent. A collapsed canvas of one pixel or less, as seen while a
+     * window is being created or minimized, counts as one so both viewport
+     * directions stay finite and invertible.
+     */
+    private static float span(float screenSize) {
+        return Math.max(screenSize - 1, 1.0f);
     }
 
     public static void drawPolygon(Graphics g, Vector2f[] polygon) {
@@ -52,5 +96,50 @@ public class Utility {
         }
         g.fillPolygon(p);
     }
-}
 
+    public static void drawPolygon(Graphics g, float[] polygon, int count) {
+        int sx = (int) polygon[count * 2 - 2];
+        int sy = (int) polygon[count * 2 - 1];
+        for (int i = 0; i < count * 2; i += 2) {
+            int px = (int) polygon[i];
+            int py = (int) polygon[i + 1];
+            g.drawLine(sx, sy, px, py);
+            sx = px;
+            sy = py;
+        }
+    }
+
+    public static void fillPolygon(Graphics2D g, float[] polygon, int count) {
+        if (xPoints.length < count) {
+            xPoints = new int[count];
+            yPoints = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            xPoints[i] = (int) polygon[i * 2];
+            yPoints[i] = (int) polygon[i * 2 + 1];
+        }
+        g.fillPolygon(xPoints, yPoints, count);
+    }
+
+    /**
+     * Draws the outline of shape transformed by the given model * view matrix.
+     */
+    public static void drawPolygon(Graphics g, Shape2f shape, Matrix3x3f transform) {
+        drawPolygon(g, project(shape, transform), shape.getVertexCount());
+    }
+
+    /**
+     * Fills shape transformed by the given model * view matrix.
+     */
+    public static void fillPolygon(Graphics2D g, Shape2f shape, Matrix3x3f transform) {
+        fillPolygon(g, project(shape, transform), shape.getVertexCount());
+    }
+
+    private static float[] project(Shape2f shape, Matrix3x3f transform) {
+        if (projected.length < shape.getVertexCount() * 2) {
+            projected = new float[shape.getVertexCount() * 2];
+        }
+        shape.transform(transform, projected);
+        return projected;
+    }
+}
@@ -29,6 +29,19 @@ public class Vector2f {
 		this.w = w; // ??
 	}
 	
+	public Vector2f set(float x, float y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public Vector2f set(Vector2f v) {
+		x = v.x;
+		y = v.y;
+		w = v.w;
+		return this;
+	}
+
 	public void translate(float tx, float ty) {
 		x += tx;
 		y += ty;
@@ -40,8 +53,12 @@ public class Vector2f {
 	}
 	
 	public void rotate(float rad) {
-		float tmp = (float)(x * Math.cos(rad) - y * Math.sin(rad));
-		y = (float)(x * Math.sin(rad) + y * Math.cos(rad));
+		rotate((float)Math.cos(rad), (float)Math.sin(rad));
+	}
+
+	public void rotate(float cos, float sin) {
+		float tmp = x * cos - y * sin;
+		y = x * sin + y * cos;
 		x = tmp;
 	}
 	
@@ -67,6 +84,33 @@ public class Vector2f {
 		return new Vector2f(x * scalar, y * scalar);
 	}
 
+	public Vector2f addLocal(Vector2f v) {
+		x += v.x;
+		y += v.y;
+		return this;
+	}
+
+	public Vector2f subLocal(Vector2f v) {
+		x -= v.x;
+		y -= v.y;
+		return this;
+	}
+
+	public Vector2f mulLocal(float scalar) {
+		x *= scalar;
+		y *= scalar;
+		return this;
+	}
+
+	/**
+	 * Adds v * scalar to this vector in place.
+	 */
+	public Vector2f scaleAdd(float scalar, Vector2f v) {
+		x += v.x * scalar;
+		y += v.y * scalar;
+		return this;
+	}
+
 	public Vector2f div(float scalar) {
 		return new Vector2f(x / scalar, y / scalar);
 	}
@@ -96,7 +140,17 @@ public class Vector2f {
 	}
 
 	public static Vector2f polar(float angle, float radius) {
-		return new Vector2f(radius * (float)Math.cos(angle), radius * (float)Math.sin(angle));
+		return new Vector2f().setPolar(angle, radius);
+	}
+
+	public Vector2f setPolar(float angle, float radius) {
+		return setPolar((float)Math.cos(angle), (float)Math.sin(angle), radius);
+	}
+
+	public Vector2f setPolar(float cos, float sin, float radius) {
+		x = radius * cos;
+		y = radius * sin;
+		return this;
 	}
 
 	@Override
@@ -0,0 +1,62 @@
+package javagames.util;
+
+/**
+ * Per-thread stack of scratch vectors for temporaries in the game loop.
+ * Take a mark, obtain as many vectors as needed and release back to the
+ * mark before returning:
+ *
+ * <pre>
+ * Vector2fPool pool = Vector2fPool.get();
+ * int mark = pool.mark();
+ * Vector2f tmp = pool.obtain();
+ * ...
+ * pool.release(mark);
+ * </pre>
+ *
+ * Vectors must not be kept after they have been released.
+ */
+public class Vector2fPool {
+    private static final ThreadLocal<Vector2fPool> POOL = ThreadLocal.withInitial(Vector2fPool::new);
+
+    private Vector2f[] vectors;
+    private int top;
+
+    private Vector2fPool() {
+        vectors = new Vector2f[16];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new Vector2f();
+        }
+    }
+
+    public static Vector2fPool get() {
+        return POOL.get();
+    }
+
+    public int mark() {
+        return top;
+    }
+
+    public Vector2f obtain() {
+        if (top == vectors.length) {
+            grow();
+        }
+        Vector2f v = vectors[top++];
+        v.x = 0.0f;
+        v.y = 0.0f;
+        v.w = 1.0f;
+        return v;
+    }
+
+    public void release(int mark) {
+        top = mark;
+    }
+
+    private void grow() {
+        Vector2f[] bigger = new Vector2f[vectors.length * 2];
+        System.arraycopy(vectors, 0, bigger, 0, vectors.length);
+        for (int i = vectors.length; i < bigger.length; i++) {
+            bigger[i] = new Vector2f();
+        }
+        vectors = bigger;
+    }
+}
@@ -0,0 +1,87 @@
+package javagames.util;
+
+/**
+ * Fixed-point counterpart of Vector2f. Components are 16.16 values, see
+ * FixedPoint.
+ */
+public class Vector2x {
+    public int x;
+    public int y;
+
+    public Vector2x() {
+
+    }
+
+    public Vector2x(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public Vector2x set(int x, int y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vector2x set(Vector2x v) {
+        x = v.x;
+        y = v.y;
+        return this;
+    }
+
+    public Vector2x set(float x, float y) {
+        this.x = FixedPoint.fromFloat(x);
+        this.y = FixedPoint.fromFloat(y);
+        return this;
+    }
+
+    public Vector2x addLocal(Vector2x v) {
+        x += v.x;
+        y += v.y;
+        return this;
+    }
+
+    public Vector2x subLocal(Vector2x v) {
+        x -= v.x;
+        y -= v.y;
+        return this;
+    }
+
+    public Vector2x mulLocal(int scalar) {
+        x = FixedPoint.mul(x, scalar);
+        y = FixedPoint.mul(y, scalar);
+        return this;
+    }
+
+    /**
+     * Adds v * scalar to this vector in place.
+     */
+    public Vector2x scaleAdd(int scalar, Vector2x v) {
+        x += FixedPoint.mul(v.x, scalar);
+        y += FixedPoint.mul(v.y, scalar);
+        return this;
+    }
+
+    public Vector2x setPolar(int angle, int radius) {
+        x = FixedPoint.mul(radius, FixedPoint.cos(angle));
+        y = FixedPoint.mul(radius, FixedPoint.sin(angle));
+        return this;
+    }
+
+    public long lenSqr() {
+        return (long)x * x + (long)y * y;
+    }
+
+    public int len() {
+        return (int)FixedPoint.isqrt(lenSqr());
+    }
+
+    public Vector2f toVector2f(Vector2f dest) {
+        return dest.set(FixedPoint.toFloat(x), FixedPoint.toFloat(y));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%s,%s)", FixedPoint.toFloat(x), FixedPoint.toFloat(y));
+    }
+}
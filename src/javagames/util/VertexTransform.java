@@ -0,0 +1,136 @@
+package javagames.util;
+
+/**
+ * Bulk transforms over packed vertex buffers. Interleaved buffers store
+ * vertices as x0, y0, x1, y1, ...; the SoA variants take separate x and y
+ * arrays. All vertices are treated as points (w = 1), so a concatenated
+ * model * view matrix can be passed to go from model space to screen space
+ * in a single pass. Source and destination may be the same array.
+ *
+ * The loops run on one of two backends. SCALAR is a plain per-vertex loop.
+ * VECTOR uses jdk.incubator.vector and lives in the separate src-vector
+ * source root, because that module has to be added explicitly:
+ *
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/javagames/util/*.java
+ *   java --add-modules jdk.incubator.vector -Djavagames.transform.backend=vector ...
+ *
+ * The backend is chosen with the system property javagames.transform.backend
+ * (scalar or vector) or setBackend(). VECTOR is loaded once by name; when
+ * its class or the module is missing, SCALAR stays in use.
+ */
+public final class VertexTransform {
+
+    public enum Backend {
+        SCALAR,
+        VECTOR
+    }
+
+    public static final String BACKEND_PROPERTY = "javagames.transform.backend";
+    private static final String VECTOR_KERNEL = "javagames.util.VectorTransformKernel";
+
+    private static final TransformKernel SCALAR_KERNEL = new ScalarTransformKernel();
+    private static volatile TransformKernel kernel = SCALAR_KERNEL;
+    private static volatile Backend backend = Backend.SCALAR;
+    // Loaded by the first request for VECTOR; null if that failed.
+    private static TransformKernel vectorKernel;
+    private static boolean vectorLoaded;
+
+    static {
+        String name = System.getProperty(BACKEND_PROPERTY);
+        if (name != null) {
+            try {
+                setBackend(Backend.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown transform backend: " + name);
+            }
+        }
+    }
+
+    private VertexTransform() {
+
+    }
+
+    public static Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Switches the backend and returns the one in use, which is SCALAR if
+     * the requested one is not available.
+     */
+    public static synchronized Backend setBackend(Backend requested) {
+        TransformKernel selected = SCALAR_KERNEL;
+        if (requested == Backend.VECTOR) {
+            if (!vectorLoaded) {
+                vectorKernel = loadVectorKernel();
+                vectorLoaded = true;
+            }
+            selected = vectorKernel;
+            if (selected == null) {
+                selected = SCALAR_KERNEL;
+                requested = Backend.SCALAR;
+            }
+        }
+        kernel = selected;
+        backend = requested;
+        return requested;
+    }
+
+    private static TransformKernel loadVectorKernel() {
+        try {
+            Class<?> type = Class.forName(VECTOR_KERNEL);
+            return (TransformKernel)type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Vector transform backend unavailable, using SCALAR: " + e);
+            return null;
+        }
+    }
+
+    public static float[] pack(Vector2f[] polygon) {
+        float[] xy = new float[polygon.length * 2];
+        for (int i = 0; i < polygon.length; i++) {
+            xy[i * 2] = polygon[i].x;
+            xy[i * 2 + 1] = polygon[i].y;
+        }
+        return xy;
+    }
+
+    public static void transform(Matrix3x3f mat, float[] src, float[] dst, int count) {
+        transform(mat, src, 0, dst, 0, count);
+    }
+
+    public static void transform(Matrix3x3f mat, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        kernel.transform(
+                mat.get(0, 0), mat.get(0, 1),
+                mat.get(1, 0), mat.get(1, 1),
+                mat.get(2, 0), mat.get(2, 1),
+                src, srcOffset, dst, dstOffset, count);
+    }
+
+    public static void transform(Matrix3x3f mat, float[] srcX, float[] srcY, float[] dstX, float[] dstY, int count) {
+        kernel.transform(
+                mat.get(0, 0), mat.get(0, 1),
+                mat.get(1, 0), mat.get(1, 1),
+                mat.get(2, 0), mat.get(2, 1),
+                srcX, srcY, dstX, dstY, count);
+    }
+
+    public static void transform(Affine2f a, float[] src, float[] dst, int count) {
+        transform(a, src, 0, dst, 0, count);
+    }
+
+    public static void transform(Affine2f a, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        kernel.transform(a.m00, a.m01, a.m10, a.m11, a.m20, a.m21, src, srcOffset, dst, dstOffset, count);
+    }
+
+    public static void transform(Affine2f a, float[] srcX, float[] srcY, float[] dstX, float[] dstY, int count) {
+        kernel.transform(a.m00, a.m01, a.m10, a.m11, a.m20, a.m21, srcX, srcY, dstX, dstY, count);
+    }
+
+    public static void translate(float tx, float ty, float[] src, float[] dst, int count) {
+        for (int i = 0; i < count * 2; i += 2) {
+            dst[i] = src[i] + tx;
+            dst[i + 1] = src[i + 1] + ty;
+        }
+    }
+}